@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
+
+/**
+ * Reads and writes the recorded module build times (in ms), stored as property file
+ * with groupId:artifactId keys.
+ *
+ * @author Juergen Kofler
+ */
+public final class BuildTimeHistory {
+
+    public static final String BUILD_TIMES_FILE_NAME = "nonsnapshotBuildTimes.properties";
+
+    private BuildTimeHistory() {
+    }
+
+    public static String key(MavenArtifact artifact) {
+        return key(artifact.getGroupId(), artifact.getArtifactId());
+    }
+
+    public static String key(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    /**
+     * Load the build times from given file.
+     *
+     * @param buildTimesFile File
+     * @return Map&lt;String, Long&gt; Empty if the file doesn't exist
+     */
+    public static Map<String, Long> load(File buildTimesFile) {
+        Map<String, Long> buildTimes = new TreeMap<>();
+        if (!buildTimesFile.exists()) {
+            return buildTimes;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(buildTimesFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to read build times file: " + buildTimesFile.getAbsolutePath(), e);
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                buildTimes.put(key, Long.parseLong(properties.getProperty(key).trim()));
+            } catch (NumberFormatException e) {
+                // Ignore invalid entries
+            }
+        }
+
+        return buildTimes;
+    }
+
+    public static void store(File buildTimesFile, Map<String, Long> buildTimes) {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : buildTimes.entrySet()) {
+            properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        try (OutputStream out = new FileOutputStream(buildTimesFile)) {
+            properties.store(out, "Module build times (ms) recorded by nonsnapshot-maven-plugin");
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to write build times file: " + buildTimesFile.getAbsolutePath(), e);
+        }
+    }
+
+}
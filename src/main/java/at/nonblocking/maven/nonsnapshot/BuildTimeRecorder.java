@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.BuildSummary;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+
+/**
+ * Build extension which records the build time of each successfully built module
+ * in the execution root directory (see {@link BuildTimeHistory}).
+ * <br><br>
+ * Only active if the plugin is declared with &lt;extensions&gt;true&lt;/extensions&gt;.
+ * The recorded time is the average of the previous and the current build time, so single outliers are damped.
+ *
+ * @author Juergen Kofler
+ */
+@Component(role = AbstractMavenLifecycleParticipant.class, hint = "nonsnapshot-build-times")
+public class BuildTimeRecorder extends AbstractMavenLifecycleParticipant {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildTimeRecorder.class);
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        if (session.getResult() == null || session.getExecutionRootDirectory() == null) {
+            return;
+        }
+
+        File buildTimesFile = new File(session.getExecutionRootDirectory(), BuildTimeHistory.BUILD_TIMES_FILE_NAME);
+
+        try {
+            Map<String, Long> buildTimes = BuildTimeHistory.load(buildTimesFile);
+
+            int recorded = 0;
+            for (MavenProject project : session.getProjects()) {
+                BuildSummary buildSummary = session.getResult().getBuildSummary(project);
+                if (buildSummary instanceof BuildSuccess) {
+                    String key = BuildTimeHistory.key(project.getGroupId(), project.getArtifactId());
+                    Long previousTime = buildTimes.get(key);
+                    long time = buildSummary.getTime();
+                    buildTimes.put(key, previousTime != null ? (previousTime + time) / 2 : time);
+                    recorded++;
+                }
+            }
+
+            if (recorded > 0) {
+                LOG.debug("Recording build times of {} modules to: {}", recorded, buildTimesFile.getAbsolutePath());
+                BuildTimeHistory.store(buildTimesFile, buildTimes);
+            }
+
+        } catch (NonSnapshotPluginException e) {
+            LOG.warn("Failed to record module build times: {}", e.getMessage());
+        }
+    }
+
+}
@@ -17,6 +17,8 @@ package at.nonblocking.maven.nonsnapshot;
 
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import at.nonblocking.maven.nonsnapshot.model.MavenModule;
 
@@ -39,14 +41,88 @@ public interface DependencyTreeProcessor {
      */
     void buildDependencyTree(List<MavenModule> modules);
 
+    /**
+     * Sort the given modules in dependency order: Each module comes after its parent and the workspace
+     * modules it depends on. Members of a dependency cycle are kept together in workspace order.
+     * Independent modules keep the workspace order.
+     * <br><br>
+     * Requires a dependency tree built by {@link #buildDependencyTree(List)}.
+     *
+     * @param modules List&lt;MavenModule&gt;
+     * @return List&lt;MavenModule&gt; A new list with all given modules
+     */
+    List<MavenModule> sortInDependencyOrder(List<MavenModule> modules);
+
+    /**
+     * Find all dependency cycles (strongly connected components) in the workspace modules.
+     * <br><br>
+     * Requires a dependency tree built by {@link #buildDependencyTree(List)}.
+     *
+     * @param modules List&lt;MavenModule&gt;
+     * @return List&lt;List&lt;MavenModule&gt;&gt; The members of each cycle, empty if there are none
+     */
+    List<List<MavenModule>> findDependencyCycles(List<MavenModule> modules);
+
+    /**
+     * Split the given modules into build waves: Each wave only depends on modules of earlier waves,
+     * so all modules of a wave can be built concurrently. Dependencies to modules not in the given list are ignored,
+     * members of a dependency cycle are put into the same wave.
+     * <br><br>
+     * Requires a dependency tree built by {@link #buildDependencyTree(List)}.
+     *
+     * @param modules List&lt;MavenModule&gt; E.g. all modules with a new version
+     * @return List&lt;List&lt;MavenModule&gt;&gt; The waves in build order, the modules of each wave in workspace order
+     */
+    List<List<MavenModule>> calculateBuildWaves(List<MavenModule> modules);
+
+    /**
+     * Split the given modules into build waves like {@link #calculateBuildWaves(List)}, but weighted by the
+     * module build times: The number of waves stays the same, but each module is moved to the wave (within its
+     * dependency constraints) where it adds the least to the total build time, the modules with the longest
+     * critical path first.
+     * Within a wave the modules with the longest critical path come first.
+     *
+     * @param modules    List&lt;MavenModule&gt; E.g. all modules with a new version
+     * @param buildTimes Map&lt;String, Long&gt; Build times in ms with groupId:artifactId keys, see {@link BuildTimeHistory}
+     * @return List&lt;List&lt;MavenModule&gt;&gt; The waves in build order
+     */
+    List<List<MavenModule>> calculateBuildWaves(List<MavenModule> modules, Map<String, Long> buildTimes);
+
     /**
      * Mark all artifacts with dirty dependencies dirty.
+     * <br><br>
+     * Dirtiness is propagated transitively in a single pass, so calling this method
+     * again with the same modules has no effect.
      *
      * @param modules List&lt;MavenModule&gt;
      * @return boolean True if any new artifacts have been marked dirty
      */
     boolean markAllArtifactsDirtyWithDirtyDependencies(List<MavenModule> modules);
 
+    /**
+     * Mark all artifacts with dirty dependencies dirty.
+     * <br><br>
+     * In parallel mode each breadth first frontier is expanded concurrently.
+     * The resulting dirty modules and logged reasons are the same in both modes.
+     *
+     * @param modules  List&lt;MavenModule&gt;
+     * @param parallel boolean
+     * @return boolean True if any new artifacts have been marked dirty
+     */
+    boolean markAllArtifactsDirtyWithDirtyDependencies(List<MavenModule> modules, boolean parallel);
+
+    /**
+     * Mark all artifacts with dirty dependencies dirty (like {@link #markAllArtifactsDirtyWithDirtyDependencies(List)})
+     * and return a tracker to apply later changes incrementally.
+     * <br><br>
+     * The modules dirty at this point and the ones with updated upstream artifacts are considered dirty by themselves.
+     *
+     * @param modules            List&lt;MavenModule&gt;
+     * @param newVersionFunction Function&lt;MavenModule, String&gt; Calculates the new version for modules which become dirty later on (can be null)
+     * @return DirtyModuleTracker
+     */
+    DirtyModuleTracker createDirtyModuleTracker(List<MavenModule> modules, Function<MavenModule, String> newVersionFunction);
+
     /**
      * Print the artifact tree found in the workspace for debug purposes.
      *
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot;
+
+import java.util.Collection;
+import java.util.List;
+
+import at.nonblocking.maven.nonsnapshot.model.MavenModule;
+
+/**
+ * Keeps the dirty state of the workspace modules up to date when single modules change,
+ * without recomputing it for the whole workspace.
+ * <br><br>
+ * Created by {@link DependencyTreeProcessor#createDirtyModuleTracker(List, java.util.function.Function)}.
+ *
+ * @author Juergen Kofler
+ */
+public interface DirtyModuleTracker {
+
+    /**
+     * Apply a change to the modules which are dirty by themselves (e.g. because of SCM changes or updated upstream artifacts)
+     * and propagate it to all dependent modules.
+     * <br><br>
+     * Modules which become clean lose their new version, modules which become dirty get a new version
+     * if the tracker has been created with a version function.
+     *
+     * @param newlyDirty Collection&lt;MavenModule&gt; Modules which are now dirty by themselves
+     * @param newlyClean Collection&lt;MavenModule&gt; Modules which are no longer dirty by themselves
+     * @return List&lt;MavenModule&gt; All modules with a changed dirty state, in workspace order
+     */
+    List<MavenModule> update(Collection<MavenModule> newlyDirty, Collection<MavenModule> newlyClean);
+
+}
@@ -19,7 +19,10 @@ import org.apache.maven.model.Model;
 import org.apache.maven.model.Profile;
 import org.apache.maven.project.MavenProject;
 
+import java.io.File;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Traverses all nested Maven modules
@@ -37,4 +40,38 @@ public interface ModuleTraverser {
      */
     List<Model> findAllModules(MavenProject baseProject, List<Profile> activeProfiles);
 
+    /**
+     * Find (recursively) all Maven modules and pass each model to given consumer as soon as it has been loaded.
+     * <br>
+     * Modules which are part of the given reactor projects are taken from their original models,
+     * all other modules are read from disk. No reference to a model is kept after it has been consumed.
+     *
+     * @param baseProject     MavenProject
+     * @param activeProfiles  List&lt;Profile&gt;
+     * @param reactorProjects List&lt;MavenProject&gt; (might be null)
+     * @param modelConsumer   Consumer&lt;Model&gt;
+     */
+    void findAllModules(MavenProject baseProject, List<Profile> activeProfiles, List<MavenProject> reactorProjects, Consumer<Model> modelConsumer);
+
+    /**
+     * Find all Maven modules by scanning the file system below given base directory.
+     * <br>
+     * Every pom.xml found is treated as a module, regardless of any module declarations.
+     * Build output and tool directories (such as target, node_modules and hidden directories) are skipped.
+     * <br><br>
+     * The patterns are globs, matched against the module directory relative to the base directory (e.g. services/**).
+     * Excluded directories are skipped together with their sub directories.
+     * Each model is converted by the given converter within the worker thread which parsed it (so the converter
+     * must be thread-safe), only the results are kept until the scan is finished. The results are passed to
+     * the consumer in the order of their relative paths.
+     *
+     * @param baseDir        File
+     * @param includes       List&lt;String&gt; (might be null to include all modules)
+     * @param excludes       List&lt;String&gt; (might be null)
+     * @param modelConverter Function&lt;Model, T&gt;
+     * @param moduleConsumer Consumer&lt;T&gt;
+     * @param <T>            The converted module type
+     */
+    <T> void scanForModules(File baseDir, List<String> includes, List<String> excludes, Function<Model, T> modelConverter, Consumer<T> moduleConsumer);
+
 }
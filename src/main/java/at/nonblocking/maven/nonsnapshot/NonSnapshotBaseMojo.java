@@ -19,6 +19,7 @@ import java.io.File;
 import java.util.List;
 import java.util.Properties;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -36,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+import at.nonblocking.maven.nonsnapshot.model.VersionGroup;
 
 /**
  * Base class for NonSnapshot Plugin Mojos.
@@ -93,6 +95,44 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
     @Parameter(defaultValue = "${project}")
     private MavenProject mavenProject;
 
+    @Parameter(defaultValue = "${session}")
+    private MavenSession mavenSession;
+
+    /**
+     * Take the models of modules which are part of the current reactor from the session instead of
+     * reading all POM files again. Modules outside the reactor are still read from disk.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean useReactorProjects;
+
+    /**
+     * Find modules by scanning the file system for pom.xml files instead of following the module declarations.
+     * Useful for flat repositories with lots of independent POMs.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean scanFileSystemForModules;
+
+    /**
+     * Glob patterns for module directories (relative to the project directory) to include
+     * if scanFileSystemForModules is enabled. Default is all.
+     */
+    @Parameter
+    private List<String> moduleIncludes;
+
+    /**
+     * Glob patterns for directories (relative to the project directory) to skip
+     * if scanFileSystemForModules is enabled.
+     */
+    @Parameter
+    private List<String> moduleExcludes;
+
+    /**
+     * Expand each step of the dirty module propagation in parallel.
+     * Only worth it for very large workspaces.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean parallelDirtyPropagation;
+
     @Parameter(required = true)
     private String baseVersion;
 
@@ -105,6 +145,87 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
     @Parameter
     private List<String> upstreamDependencies;
 
+    /**
+     * Max number of upstream version queries resolved concurrently.
+     */
+    @Parameter(defaultValue = "4")
+    private int upstreamResolutionThreads = 4;
+
+    /**
+     * Minutes a resolved upstream version (or the fact there is no newer one) is cached on disk.
+     * 0 disables the persistent cache.
+     */
+    @Parameter(defaultValue = "0")
+    private long upstreamCacheTimeToLive;
+
+    /**
+     * Directory of the persistent upstream version cache. There is one cache file per set of remote repositories.
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/nonsnapshot-upstream-cache")
+    private File upstreamCacheDirectory;
+
+    /**
+     * Ignore the cached upstream versions and resolve them again.
+     */
+    @Parameter(property = "nonsnapshot.upstreamCacheRefresh", defaultValue = "false")
+    private boolean upstreamCacheRefresh;
+
+    /**
+     * Resolve the upstream versions from the metadata in the local repository only (always the case if Maven runs offline).
+     * Artifacts without local metadata are still resolved from the remote repositories.
+     */
+    @Parameter(property = "nonsnapshot.upstreamOfflineResolution", defaultValue = "false")
+    private boolean upstreamOfflineResolution;
+
+    /**
+     * Minutes after which the local metadata of an artifact is considered stale and the remote repositories
+     * are queried instead, if upstreamOfflineResolution is enabled. 0 means never.
+     */
+    @Parameter(defaultValue = "0")
+    private long upstreamMetadataMaxAge;
+
+    /**
+     * Milliseconds after which a single upstream version query is given up. 0 means no timeout.
+     */
+    @Parameter(defaultValue = "0")
+    private long upstreamQueryTimeout;
+
+    /**
+     * Milliseconds the resolution of all upstream versions may take. Versions not resolved until then keep
+     * their current version. 0 means no limit.
+     */
+    @Parameter(defaultValue = "0")
+    private long upstreamResolutionBudget;
+
+    /**
+     * Number of consecutive failed upstream version queries after which no more queries are sent to the same
+     * repository. 0 means never.
+     */
+    @Parameter(defaultValue = "0")
+    private int upstreamCircuitBreakerThreshold;
+
+    /**
+     * If the version of an upstream dependency is a property (e.g. ${lib.version}) defined in a workspace module
+     * (the module itself or one of its parents), update the property definition instead of the dependency version.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean updateUpstreamVersionProperties;
+
+    /**
+     * CI-friendly versions: Modules with a version like ${revision} take it from this file, which is
+     * updated instead of the POM files. Either a <i>.mvn/maven.config</i> file with -Dname=value arguments
+     * or a property file. Modules sharing a property are versioned together.
+     */
+    @Parameter
+    private File versionPropertiesFile;
+
+    /**
+     * Groups of modules which are always versioned together. All members of a group get a new version
+     * if anything within the group changed. A module belongs to the first group it matches.
+     */
+    @Parameter
+    private List<VersionGroup> versionGroups;
+
     /**
      * Generate a shell script to incrementally build only dirty artifacts (Maven > 3.2.1 only)
      */
@@ -118,6 +239,13 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
     @Parameter(defaultValue = "false")
     private boolean generateChangedProjectsPropertyFile;
 
+    /**
+     * Generate a file with the dirty artifacts split into build waves (one line per wave) and a shell script
+     * which builds the waves in order, with parallel builds within a wave (Maven > 3.2.1 only)
+     */
+    @Parameter(defaultValue = "false")
+    private boolean generateIncrementalBuildWaves;
+
     /**
      * Disable this plugin
      */
@@ -161,12 +289,49 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
 
         postProcessParameters();
 
-        internalExecute();
+        try {
+            internalExecute();
+        } finally {
+            this.upstreamDependencyHandler.shutdown();
+        }
     }
 
     protected abstract void internalExecute();
 
+    /**
+     * @return boolean False if the goal never accesses the SCM, so no ScmHandler is created
+     */
+    protected boolean isScmHandlerRequired() {
+        return true;
+    }
+
     private void postProcessParameters() {
+        if (isScmHandlerRequired()) {
+            initScmHandler();
+        }
+
+        initUpstreamDependencyHandler();
+    }
+
+    private void initUpstreamDependencyHandler() {
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, String.valueOf(this.upstreamCacheTimeToLive));
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_REFRESH, String.valueOf(this.upstreamCacheRefresh));
+        boolean offline = this.upstreamOfflineResolution || (this.mavenSession != null && this.mavenSession.isOffline());
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_OFFLINE_RESOLUTION, String.valueOf(offline));
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_METADATA_MAX_AGE, String.valueOf(this.upstreamMetadataMaxAge));
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_QUERY_TIMEOUT, String.valueOf(this.upstreamQueryTimeout));
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_QUERY_THREADS, String.valueOf(this.upstreamResolutionThreads));
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, String.valueOf(this.upstreamCircuitBreakerThreshold));
+        if (this.upstreamCacheDirectory != null) {
+            properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_DIRECTORY, this.upstreamCacheDirectory.getAbsolutePath());
+        }
+
+        this.upstreamDependencyHandler.init(properties);
+        this.processedUpstreamDependencies = this.upstreamDependencyHandler.processDependencyList(getUpstreamDependencies());
+    }
+
+    private void initScmHandler() {
         if (this.scmHandler == null) {
             LOG.debug("Lookup for ScmHandler implementation of type: {}", this.scmType);
 
@@ -187,8 +352,6 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
         properties.setProperty("gitDoPush", String.valueOf(this.gitDoPush));
 
         this.scmHandler.init(getMavenProject().getBasedir(), this.scmUser, this.scmPassword, properties);
-
-        this.processedUpstreamDependencies = this.upstreamDependencyHandler.processDependencyList(getUpstreamDependencies());
     }
 
     protected File getDirtyModulesRegistryFile() {
@@ -264,6 +427,54 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
         this.mavenProject = mavenProject;
     }
 
+    public MavenSession getMavenSession() {
+        return mavenSession;
+    }
+
+    public void setMavenSession(MavenSession mavenSession) {
+        this.mavenSession = mavenSession;
+    }
+
+    public boolean isUseReactorProjects() {
+        return useReactorProjects;
+    }
+
+    public void setUseReactorProjects(boolean useReactorProjects) {
+        this.useReactorProjects = useReactorProjects;
+    }
+
+    public boolean isScanFileSystemForModules() {
+        return scanFileSystemForModules;
+    }
+
+    public void setScanFileSystemForModules(boolean scanFileSystemForModules) {
+        this.scanFileSystemForModules = scanFileSystemForModules;
+    }
+
+    public List<String> getModuleIncludes() {
+        return moduleIncludes;
+    }
+
+    public void setModuleIncludes(List<String> moduleIncludes) {
+        this.moduleIncludes = moduleIncludes;
+    }
+
+    public List<String> getModuleExcludes() {
+        return moduleExcludes;
+    }
+
+    public void setModuleExcludes(List<String> moduleExcludes) {
+        this.moduleExcludes = moduleExcludes;
+    }
+
+    public boolean isParallelDirtyPropagation() {
+        return parallelDirtyPropagation;
+    }
+
+    public void setParallelDirtyPropagation(boolean parallelDirtyPropagation) {
+        this.parallelDirtyPropagation = parallelDirtyPropagation;
+    }
+
     public String getBaseVersion() {
         return baseVersion;
     }
@@ -296,6 +507,102 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
         this.upstreamDependencies = upstreamDependencies;
     }
 
+    public int getUpstreamResolutionThreads() {
+        return upstreamResolutionThreads;
+    }
+
+    public void setUpstreamResolutionThreads(int upstreamResolutionThreads) {
+        this.upstreamResolutionThreads = upstreamResolutionThreads;
+    }
+
+    public long getUpstreamCacheTimeToLive() {
+        return upstreamCacheTimeToLive;
+    }
+
+    public void setUpstreamCacheTimeToLive(long upstreamCacheTimeToLive) {
+        this.upstreamCacheTimeToLive = upstreamCacheTimeToLive;
+    }
+
+    public File getUpstreamCacheDirectory() {
+        return upstreamCacheDirectory;
+    }
+
+    public void setUpstreamCacheDirectory(File upstreamCacheDirectory) {
+        this.upstreamCacheDirectory = upstreamCacheDirectory;
+    }
+
+    public boolean isUpstreamCacheRefresh() {
+        return upstreamCacheRefresh;
+    }
+
+    public void setUpstreamCacheRefresh(boolean upstreamCacheRefresh) {
+        this.upstreamCacheRefresh = upstreamCacheRefresh;
+    }
+
+    public boolean isUpstreamOfflineResolution() {
+        return upstreamOfflineResolution;
+    }
+
+    public void setUpstreamOfflineResolution(boolean upstreamOfflineResolution) {
+        this.upstreamOfflineResolution = upstreamOfflineResolution;
+    }
+
+    public long getUpstreamMetadataMaxAge() {
+        return upstreamMetadataMaxAge;
+    }
+
+    public void setUpstreamMetadataMaxAge(long upstreamMetadataMaxAge) {
+        this.upstreamMetadataMaxAge = upstreamMetadataMaxAge;
+    }
+
+    public long getUpstreamQueryTimeout() {
+        return upstreamQueryTimeout;
+    }
+
+    public void setUpstreamQueryTimeout(long upstreamQueryTimeout) {
+        this.upstreamQueryTimeout = upstreamQueryTimeout;
+    }
+
+    public long getUpstreamResolutionBudget() {
+        return upstreamResolutionBudget;
+    }
+
+    public void setUpstreamResolutionBudget(long upstreamResolutionBudget) {
+        this.upstreamResolutionBudget = upstreamResolutionBudget;
+    }
+
+    public int getUpstreamCircuitBreakerThreshold() {
+        return upstreamCircuitBreakerThreshold;
+    }
+
+    public void setUpstreamCircuitBreakerThreshold(int upstreamCircuitBreakerThreshold) {
+        this.upstreamCircuitBreakerThreshold = upstreamCircuitBreakerThreshold;
+    }
+
+    public boolean isUpdateUpstreamVersionProperties() {
+        return updateUpstreamVersionProperties;
+    }
+
+    public void setUpdateUpstreamVersionProperties(boolean updateUpstreamVersionProperties) {
+        this.updateUpstreamVersionProperties = updateUpstreamVersionProperties;
+    }
+
+    public File getVersionPropertiesFile() {
+        return versionPropertiesFile;
+    }
+
+    public void setVersionPropertiesFile(File versionPropertiesFile) {
+        this.versionPropertiesFile = versionPropertiesFile;
+    }
+
+    public List<VersionGroup> getVersionGroups() {
+        return versionGroups;
+    }
+
+    public void setVersionGroups(List<VersionGroup> versionGroups) {
+        this.versionGroups = versionGroups;
+    }
+
     public boolean isGenerateIncrementalBuildScripts() {
         return generateIncrementalBuildScripts;
     }
@@ -304,6 +611,14 @@ abstract class NonSnapshotBaseMojo extends AbstractMojo implements Contextualiza
         this.generateIncrementalBuildScripts = generateIncrementalBuildScripts;
     }
 
+    public boolean isGenerateIncrementalBuildWaves() {
+        return generateIncrementalBuildWaves;
+    }
+
+    public void setGenerateIncrementalBuildWaves(boolean generateIncrementalBuildWaves) {
+        this.generateIncrementalBuildWaves = generateIncrementalBuildWaves;
+    }
+
     public boolean isGenerateChangedProjectsPropertyFile() {
         return generateChangedProjectsPropertyFile;
     }
@@ -53,9 +53,14 @@ public class NonSnapshotCommitMojo extends NonSnapshotBaseMojo {
             return;
         }
 
+        List<File> filesToCommit = new ArrayList<>(pomsToCommit);
+        if (getVersionPropertiesFile() != null && getVersionPropertiesFile().exists()) {
+            filesToCommit.add(getVersionPropertiesFile());
+        }
+
         try {
             LOG.info("Committing {} POM files", pomsToCommit.size());
-            getScmHandler().commitFiles(pomsToCommit, "Nonsnapshot Plugin: Version of " + pomsToCommit.size() + " modules updated");
+            getScmHandler().commitFiles(filesToCommit, "Nonsnapshot Plugin: Version of " + pomsToCommit.size() + " modules updated");
         } catch (RuntimeException e) {
             if (isDontFailOnCommit()) {
                 LOG.warn("Error occurred during commit, ignoring it since dontFailOnCommit=true.", e);
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+import at.nonblocking.maven.nonsnapshot.model.MavenModule;
+
+/**
+ * Impact analysis for an explicit list of changed files (e.g. from <i>git diff --name-only</i>).
+ * <br><br>
+ * Maps the changed files to the modules containing them and marks them and all dependent modules dirty,
+ * without accessing the SCM or (unless <i>resolveUpstreamDependencies</i> is set) the remote repositories.
+ * Reports the dirty modules, or with <i>applyImpact</i> rewrites their versions (timestamp qualifier only)
+ * like <i>updateVersions</i> with deferred commit.
+ *
+ * @author Juergen Kofler
+ */
+@Mojo(name = "impactAnalysis", aggregator = true)
+public class NonSnapshotImpactAnalysisMojo extends NonSnapshotUpdateVersionsMojo {
+
+    private static Logger LOG = LoggerFactory.getLogger(NonSnapshotImpactAnalysisMojo.class);
+
+    private static final String STDIN = "-";
+
+    /**
+     * File with the changed paths, one per line. Use - to read them from stdin.
+     */
+    @Parameter(property = "nonsnapshot.changedFiles", required = true)
+    private String changedFiles;
+
+    /**
+     * Directory the changed paths are relative to. Default is the project directory.
+     */
+    @Parameter(property = "nonsnapshot.changedFilesBaseDir")
+    private File changedFilesBaseDir;
+
+    /**
+     * Rewrite the versions of the dirty modules. The commit is always deferred (use nonsnapshot:commit).
+     */
+    @Parameter(property = "nonsnapshot.applyImpact", defaultValue = "false")
+    private boolean applyImpact;
+
+    /**
+     * Also update the upstream dependencies to the latest version in the remote repositories (requires network access).
+     */
+    @Parameter(property = "nonsnapshot.resolveUpstreamDependencies", defaultValue = "false")
+    private boolean resolveUpstreamDependencies;
+
+    @Override
+    protected boolean isScmHandlerRequired() {
+        return false;
+    }
+
+    @Override
+    protected boolean isUpdateUpstreamArtifacts() {
+        return this.resolveUpstreamDependencies && super.isUpdateUpstreamArtifacts();
+    }
+
+    @Override
+    protected void markDirtyModules(List<MavenModule> mavenModules) {
+        List<String> changedPaths = readChangedPaths();
+        Path baseDir = toCanonicalPath(this.changedFilesBaseDir != null ? this.changedFilesBaseDir : getMavenProject().getBasedir());
+
+        Map<Path, MavenModule> moduleDirIndex = createModuleDirIndex(mavenModules);
+
+        for (String changedPath : changedPaths) {
+            MavenModule module = findModule(baseDir.resolve(changedPath).normalize(), moduleDirIndex);
+            if (module == null) {
+                LOG.debug("Changed path is not part of any module: {}", changedPath);
+            } else if (!module.isDirty()) {
+                LOG.info("Module {}:{} changed: {}", module.getGroupId(), module.getArtifactId(), changedPath);
+                module.setDirty(true);
+            }
+        }
+    }
+
+    private Map<Path, MavenModule> createModuleDirIndex(List<MavenModule> mavenModules) {
+        Map<Path, MavenModule> moduleDirIndex = new HashMap<>(mavenModules.size() * 2);
+        for (MavenModule mavenModule : mavenModules) {
+            Path moduleDir = toCanonicalPath(mavenModule.getPomFile().getAbsoluteFile().getParentFile());
+            moduleDirIndex.putIfAbsent(moduleDir, mavenModule);
+        }
+        return moduleDirIndex;
+    }
+
+    /**
+     * Both sides of the path comparison must be canonical, otherwise symlinks in the base directory
+     * (e.g. /tmp on macOS) prevent any match.
+     */
+    private Path toCanonicalPath(File file) {
+        try {
+            return file.getCanonicalFile().toPath();
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to determine canonical path of: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * The module with the longest directory prefix of given path.
+     */
+    private MavenModule findModule(Path changedPath, Map<Path, MavenModule> moduleDirIndex) {
+        for (Path dir = changedPath; dir != null; dir = dir.getParent()) {
+            MavenModule module = moduleDirIndex.get(dir);
+            if (module != null) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    private List<String> readChangedPaths() {
+        if (this.changedFiles == null) {
+            throw new NonSnapshotPluginException("No changed files given!");
+        }
+
+        List<String> changedPaths = new ArrayList<>();
+        try (InputStream in = STDIN.equals(this.changedFiles) ? new NonClosingInputStream(System.in) : new FileInputStream(this.changedFiles);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    changedPaths.add(line.replace('\\', '/'));
+                }
+            }
+
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to read changed files from: " + this.changedFiles, e);
+        }
+
+        LOG.info("Read {} changed paths", changedPaths.size());
+
+        return changedPaths;
+    }
+
+    @Override
+    protected void setNextRevisionOnDirtyArtifacts(List<MavenModule> mavenModules) {
+        if (!this.applyImpact) {
+            return;
+        }
+        if (isUseSvnRevisionQualifier()) {
+            throw new NonSnapshotPluginException("applyImpact is only supported with timestamp qualifiers!");
+        }
+
+        String newVersion = getBaseVersion() + "-" + new SimpleDateFormat(getTimestampQualifierPattern()).format(new Date());
+        for (MavenModule mavenModule : mavenModules) {
+            if (mavenModule.isDirty()) {
+                mavenModule.setNewVersion(newVersion);
+            }
+        }
+    }
+
+    @Override
+    protected void writeAndCommitArtifacts(List<MavenModule> mavenModules) {
+        List<File> dirtyPomFiles = new ArrayList<>();
+        for (MavenModule mavenModule : mavenModules) {
+            if (mavenModule.isDirty()) {
+                LOG.info("Impacted module: {}:{}", mavenModule.getGroupId(), mavenModule.getArtifactId());
+                dirtyPomFiles.add(mavenModule.getPomFile());
+            }
+        }
+
+        LOG.info("Artifacts in Workspace: {}, thereof impacted: {}", mavenModules.size(), dirtyPomFiles.size());
+
+        if (this.applyImpact) {
+            setDeferPomCommit(true);
+            super.writeAndCommitArtifacts(mavenModules);
+        } else if (isGenerateChangedProjectsPropertyFile()) {
+            generateChangedProjectsPropertyFile(dirtyPomFiles);
+        }
+    }
+
+    public String getChangedFiles() {
+        return changedFiles;
+    }
+
+    public void setChangedFiles(String changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
+    public File getChangedFilesBaseDir() {
+        return changedFilesBaseDir;
+    }
+
+    public void setChangedFilesBaseDir(File changedFilesBaseDir) {
+        this.changedFilesBaseDir = changedFilesBaseDir;
+    }
+
+    public boolean isApplyImpact() {
+        return applyImpact;
+    }
+
+    public void setApplyImpact(boolean applyImpact) {
+        this.applyImpact = applyImpact;
+    }
+
+    public boolean isResolveUpstreamDependencies() {
+        return resolveUpstreamDependencies;
+    }
+
+    public void setResolveUpstreamDependencies(boolean resolveUpstreamDependencies) {
+        this.resolveUpstreamDependencies = resolveUpstreamDependencies;
+    }
+
+    /**
+     * Keeps System.in open.
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -20,19 +20,37 @@ import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import at.nonblocking.maven.nonsnapshot.model.MavenModule;
 import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+import at.nonblocking.maven.nonsnapshot.model.MavenModuleProperty;
 import at.nonblocking.maven.nonsnapshot.model.UpdatedUpstreamMavenArtifact;
+import at.nonblocking.maven.nonsnapshot.model.VersionGroup;
 import org.apache.maven.model.Model;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.project.MavenProject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Main Goal of this Plugin.
@@ -52,40 +70,94 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
 
     private static final String LINE_SEPARATOR = System.getProperty("line.separator");
     private static final Date NOW = new Date();
+    private static final Pattern PROPERTY_VERSION = Pattern.compile("(\\$\\{[^${}]+\\})+");
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^${}]+)\\}");
+
+    private final List<VersionGroup> activeVersionGroups = new ArrayList<>();
+    private final Map<MavenModule, List<MavenModule>> versionGroupMembers = new IdentityHashMap<>();
+    private final List<List<MavenModule>> versionGroupModules = new ArrayList<>();
+    private final Map<List<MavenModule>, Long> versionGroupRevisions = new IdentityHashMap<>();
 
     @Override
     protected void internalExecute() {
-        List<Model> mavenModels = getModuleTraverser().findAllModules(getMavenProject(), getMavenProject().getActiveProfiles());
+        List<MavenModule> mavenModules = findAllModules();
 
-        List<MavenModule> mavenModules = buildModules(mavenModels);
+        resolveVersionProperties(mavenModules);
 
         getDependencyTreeProcessor().buildDependencyTree(mavenModules);
 
-        markDirtyWhenRevisionChangedOrInvalidQualifier(mavenModules);
+        logDependencyCycles(mavenModules);
+
+        List<MavenModule> sortedModules = getDependencyTreeProcessor().sortInDependencyOrder(mavenModules);
+
+        assignVersionGroups(sortedModules);
 
-        if (getUpstreamDependencies() != null) {
-            updateUpstreamArtifacts(mavenModules);
+        markDirtyModules(sortedModules);
+
+        if (isUpdateUpstreamArtifacts()) {
+            updateUpstreamArtifacts(sortedModules);
         }
 
-        //Recursively mark artifacts dirty
-        boolean changes = getDependencyTreeProcessor().markAllArtifactsDirtyWithDirtyDependencies(mavenModules);
-        while (changes) {
-            changes = getDependencyTreeProcessor().markAllArtifactsDirtyWithDirtyDependencies(mavenModules);
+        //Transitively mark artifacts dirty
+        boolean anyDirty = getDependencyTreeProcessor().markAllArtifactsDirtyWithDirtyDependencies(sortedModules, isParallelDirtyPropagation());
+
+        //Version groups are always dirty as a whole, which can make further modules dirty
+        while (expandDirtyVersionGroups()) {
+            getDependencyTreeProcessor().markAllArtifactsDirtyWithDirtyDependencies(sortedModules, isParallelDirtyPropagation());
+            anyDirty = true;
         }
 
-        setNextRevisionOnDirtyArtifacts(mavenModules);
+        anyDirty = anyDirty || containsDirtyModule(sortedModules);
+
+        if (anyDirty) {
+            setNextRevisionOnDirtyArtifacts(sortedModules);
+        }
 
         dumpArtifactTreeToLog(mavenModules);
 
-        writeAndCommitArtifacts(mavenModules);
+        writeAndCommitArtifacts(sortedModules);
+    }
+
+    private void logDependencyCycles(List<MavenModule> mavenModules) {
+        for (List<MavenModule> cycle : getDependencyTreeProcessor().findDependencyCycles(mavenModules)) {
+            StringBuilder members = new StringBuilder();
+            for (MavenModule member : cycle) {
+                if (members.length() > 0) {
+                    members.append(", ");
+                }
+                members.append(member.getGroupId()).append(":").append(member.getArtifactId());
+            }
+            LOG.warn("Dependency cycle found between workspace modules: {}", members);
+        }
+    }
+
+    private boolean containsDirtyModule(List<MavenModule> mavenModules) {
+        for (MavenModule mavenModule : mavenModules) {
+            if (mavenModule.isDirty()) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private List<MavenModule> buildModules(List<Model> mavenModels) {
+    private List<MavenModule> findAllModules() {
         List<MavenModule> mavenModules = new ArrayList<>();
 
-        for (Model model : mavenModels) {
-            MavenModule module = getMavenPomHandler().readArtifact(model);
-            mavenModules.add(module);
+        // Convert each model right away, so only the compact module representation is kept in memory
+        Consumer<Model> modelConsumer = model -> mavenModules.add(getMavenPomHandler().readArtifact(model));
+
+        if (isScanFileSystemForModules()) {
+            // The models are converted by the scanning worker threads
+            getModuleTraverser().scanForModules(getMavenProject().getBasedir(), getModuleIncludes(), getModuleExcludes(),
+                    model -> getMavenPomHandler().readArtifact(model), mavenModules::add);
+        } else {
+            List<MavenProject> reactorProjects = null;
+            if (isUseReactorProjects() && getMavenSession() != null) {
+                reactorProjects = getMavenSession().getProjects();
+            }
+
+            getModuleTraverser().findAllModules(getMavenProject(), getMavenProject().getActiveProfiles(), reactorProjects, modelConsumer);
         }
 
         return mavenModules;
@@ -93,15 +165,28 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
 
     protected void writeAndCommitArtifacts(List<MavenModule> mavenModules) {
         List<File> pomsToCommit = new ArrayList<>();
+        List<MavenModule> updatedModules = new ArrayList<>();
+        Map<String, String> updatedVersionProperties = new LinkedHashMap<>();
 
         for (MavenModule mavenModule : mavenModules) {
             if (mavenModule.isDirty() && mavenModule.getNewVersion() != null) {
                 getMavenPomHandler().updateArtifact(mavenModule);
                 LOG.debug("Add module to dirty registry list: {}", mavenModule.getPomFile().getAbsolutePath());
                 pomsToCommit.add(mavenModule.getPomFile());
+                updatedModules.add(mavenModule);
+                if (mavenModule.getVersionProperty() != null) {
+                    updatedVersionProperties.put(mavenModule.getVersionProperty(), mavenModule.getNewVersion());
+                }
             }
         }
 
+        List<File> filesToCommit = new ArrayList<>(pomsToCommit);
+        if (!updatedVersionProperties.isEmpty()) {
+            LOG.info("Writing {} version properties to: {}", updatedVersionProperties.size(), getVersionPropertiesFile().getAbsolutePath());
+            VersionPropertiesFile.store(getVersionPropertiesFile(), updatedVersionProperties);
+            filesToCommit.add(getVersionPropertiesFile());
+        }
+
         if (isGenerateChangedProjectsPropertyFile()) {
             generateChangedProjectsPropertyFile(pomsToCommit);
         }
@@ -111,10 +196,13 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
             if (isGenerateIncrementalBuildScripts()) {
                 generateIncrementalBuildScripts(pomsToCommit);
             }
+            if (isGenerateIncrementalBuildWaves()) {
+                generateIncrementalBuildWaves(updatedModules);
+            }
 
             if (!isDeferPomCommit()) {
                 LOG.info("Committing {} POM files", pomsToCommit.size());
-                getScmHandler().commitFiles(pomsToCommit, ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of " + pomsToCommit.size() + " artifacts updated");
+                getScmHandler().commitFiles(filesToCommit, ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of " + pomsToCommit.size() + " artifacts updated");
             } else {
                 LOG.info("Deferring the POM commit. Execute nonsnapshot:commit to actually commit the changes.");
             }
@@ -123,73 +211,357 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
         }
     }
 
+    /**
+     * Mark the modules dirty which changed by themselves (before the propagation to dependent modules).
+     *
+     * @param mavenModules List&lt;MavenModule&gt; All modules in dependency order
+     */
+    protected void markDirtyModules(List<MavenModule> mavenModules) {
+        markDirtyWhenRevisionChangedOrInvalidQualifier(mavenModules);
+    }
+
+    /**
+     * Whether the dependencies to upstream artifacts should be updated to the latest version in the remote repositories.
+     *
+     * @return boolean
+     */
+    protected boolean isUpdateUpstreamArtifacts() {
+        return getUpstreamDependencies() != null;
+    }
+
     private void markDirtyWhenRevisionChangedOrInvalidQualifier(List<MavenModule> mavenModules) {
         for (MavenModule mavenModule : mavenModules) {
-            if (mavenModule.getVersion() == null) {
-                LOG.info("No version found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+            String qualifierString = getValidQualifier(mavenModule);
+            if (qualifierString == null) {
                 mavenModule.setDirty(true);
 
-            } else if (mavenModule.getVersion().startsWith("${")) {
-                LOG.info("Version property found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
-                mavenModule.setDirty(true);
+            } else if (this.versionGroupMembers.containsKey(mavenModule)) {
+                //Checked once for the whole group below
 
-            } else {
-                String[] versionParts = mavenModule.getVersion().split("-");
-                String qualifierString = null;
-                if (versionParts.length > 1) {
-                    qualifierString = versionParts[versionParts.length - 1];
-                }
+            } else if (getScmType() == SCM_TYPE.SVN && isUseSvnRevisionQualifier()) {
 
-                if (qualifierString == null) {
-                    LOG.info("Invalid qualifier string found for artifact {}:{}: {}. Assigning a new version.",
-                            mavenModule.getGroupId(), mavenModule.getArtifactId(), mavenModule.getVersion());
+                try {
+                    long currentRev = getScmHandler().getCurrentRevisionId(mavenModule.getPomFile().getParentFile());
+                    long revFromQualifier = Long.parseLong(qualifierString);
+                    if (revFromQualifier != currentRev && getScmHandler().checkChangesSinceRevision(mavenModule.getPomFile().getParentFile(), revFromQualifier, currentRev)) {
+                        LOG.info("Module {}:{}: There were commits after the revision number in the version qualifier. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+                        mavenModule.setDirty(true);
+                    }
+                } catch (NumberFormatException e) {
+                    LOG.warn("Invalid SVN revision: {}", qualifierString);
                     mavenModule.setDirty(true);
+                }
 
-                } else if (qualifierString.equals("SNAPSHOT")) {
-                    LOG.info("Snapshot version found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+            } else {
+                //Default: compare timestamps
+                try {
+                    DateFormat dateFormat = new SimpleDateFormat(getTimestampQualifierPattern());
+                    Date dateFromQualifier = dateFormat.parse(qualifierString);
+                    Date lastCommitDate = dateFormat.parse(dateFormat.format(getScmHandler().getLastCommitDate(mavenModule.getPomFile().getParentFile())));
+                    if (!dateFromQualifier.equals(lastCommitDate) && getScmHandler().checkChangesSinceDate(mavenModule.getPomFile().getParentFile(), dateFromQualifier, lastCommitDate)) {
+                        LOG.info("Module {}:{}: There were commits after the timestamp in the version qualifier. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+                        mavenModule.setDirty(true);
+                    }
+                } catch (ParseException e) {
+                    LOG.debug("Module {}:{}: Invalid timestamp qualifier: {}",
+                            mavenModule.getGroupId(), mavenModule.getArtifactId(), qualifierString);
                     mavenModule.setDirty(true);
+                }
+            }
+        }
 
-                } else {
-                    if (getScmType() == SCM_TYPE.SVN && isUseSvnRevisionQualifier()) {
-
-                        try {
-                            long currentRev = getScmHandler().getCurrentRevisionId(mavenModule.getPomFile().getParentFile());
-                            long revFromQualifier = Long.parseLong(qualifierString);
-                            if (revFromQualifier != currentRev && getScmHandler().checkChangesSinceRevision(mavenModule.getPomFile().getParentFile(), revFromQualifier, currentRev)) {
-                                LOG.info("Module {}:{}: There were commits after the revision number in the version qualifier. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
-                                mavenModule.setDirty(true);
-                            }
-                        } catch (NumberFormatException e) {
-                            LOG.warn("Invalid SVN revision: {}", qualifierString);
-                            mavenModule.setDirty(true);
-                        }
+        for (int i = 0; i < this.versionGroupModules.size(); i++) {
+            markDirtyWhenVersionGroupChanged(this.activeVersionGroups.get(i), this.versionGroupModules.get(i));
+        }
+    }
+
+    /**
+     * @return String The qualifier of the current version or null if the module needs a new version anyway
+     */
+    private String getValidQualifier(MavenModule mavenModule) {
+        if (mavenModule.getVersion() == null) {
+            LOG.info("No version found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+            return null;
+
+        } else if (mavenModule.getVersion().startsWith("${")) {
+            LOG.info("Version property found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+            return null;
+        }
+
+        String[] versionParts = mavenModule.getVersion().split("-");
+        String qualifierString = null;
+        if (versionParts.length > 1) {
+            qualifierString = versionParts[versionParts.length - 1];
+        }
+
+        if (qualifierString == null) {
+            LOG.info("Invalid qualifier string found for artifact {}:{}: {}. Assigning a new version.",
+                    mavenModule.getGroupId(), mavenModule.getArtifactId(), mavenModule.getVersion());
+            return null;
+
+        } else if (qualifierString.equals("SNAPSHOT")) {
+            LOG.info("Snapshot version found for artifact {}:{}. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+            return null;
+        }
+
+        return qualifierString;
+    }
+
+    /**
+     * Check the directories of all group members at once, starting at the oldest qualifier within the group.
+     */
+    private void markDirtyWhenVersionGroupChanged(VersionGroup versionGroup, List<MavenModule> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+
+        boolean changed = containsDirtyModule(members);
+
+        if (!changed) {
+            List<File> moduleDirectories = getModuleDirectories(members);
+
+            if (getScmType() == SCM_TYPE.SVN && isUseSvnRevisionQualifier()) {
+                try {
+                    long oldestRevFromQualifier = Long.MAX_VALUE;
+                    for (MavenModule member : members) {
+                        oldestRevFromQualifier = Math.min(oldestRevFromQualifier, Long.parseLong(getValidQualifier(member)));
+                    }
+                    long currentRev = getVersionGroupRevision(members);
+                    changed = oldestRevFromQualifier != currentRev && getScmHandler().checkChangesSinceRevision(moduleDirectories, oldestRevFromQualifier, currentRev);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Invalid SVN revision in version group {}: {}", versionGroup.getName(), e.getMessage());
+                    changed = true;
+                }
 
-                    } else {
-                        //Default: compare timestamps
-                        try {
-                            DateFormat dateFormat = new SimpleDateFormat(getTimestampQualifierPattern());
-                            Date dateFromQualifier = dateFormat.parse(qualifierString);
-                            Date lastCommitDate = dateFormat.parse(dateFormat.format(getScmHandler().getLastCommitDate(mavenModule.getPomFile().getParentFile())));
-                            if (!dateFromQualifier.equals(lastCommitDate) && getScmHandler().checkChangesSinceDate(mavenModule.getPomFile().getParentFile(), dateFromQualifier, lastCommitDate)) {
-                                LOG.info("Module {}:{}: There were commits after the timestamp in the version qualifier. Assigning a new version.", mavenModule.getGroupId(), mavenModule.getArtifactId());
-                                mavenModule.setDirty(true);
-                            }
-                        } catch (ParseException e) {
-                            LOG.debug("Module {}:{}: Invalid timestamp qualifier: {}",
-                                    mavenModule.getGroupId(), mavenModule.getArtifactId(), qualifierString);
-                            mavenModule.setDirty(true);
+            } else {
+                try {
+                    DateFormat dateFormat = new SimpleDateFormat(getTimestampQualifierPattern());
+                    Date oldestDateFromQualifier = null;
+                    for (MavenModule member : members) {
+                        Date dateFromQualifier = dateFormat.parse(getValidQualifier(member));
+                        if (oldestDateFromQualifier == null || dateFromQualifier.before(oldestDateFromQualifier)) {
+                            oldestDateFromQualifier = dateFromQualifier;
                         }
                     }
+                    Date lastCommitDate = dateFormat.parse(dateFormat.format(getScmHandler().getLastCommitDate(moduleDirectories)));
+                    changed = !oldestDateFromQualifier.equals(lastCommitDate) && getScmHandler().checkChangesSinceDate(moduleDirectories, oldestDateFromQualifier, lastCommitDate);
+                } catch (ParseException e) {
+                    LOG.debug("Version group {}: Invalid timestamp qualifier: {}", versionGroup.getName(), e.getMessage());
+                    changed = true;
+                }
+            }
+        }
+
+        if (changed) {
+            LOG.info("Version group {}: There were changes within the group. Assigning a new version to all {} members.", versionGroup.getName(), members.size());
+            for (MavenModule member : members) {
+                member.setDirty(true);
+            }
+        }
+    }
+
+    /**
+     * Mark all members of version groups with a dirty member dirty as well.
+     *
+     * @return boolean True if any module has been marked dirty
+     */
+    private boolean expandDirtyVersionGroups() {
+        boolean expanded = false;
+
+        for (int i = 0; i < this.versionGroupModules.size(); i++) {
+            List<MavenModule> members = this.versionGroupModules.get(i);
+            if (containsDirtyModule(members)) {
+                for (MavenModule member : members) {
+                    if (!member.isDirty()) {
+                        LOG.debug("Module {}:{}: Marked dirty because version group {} is dirty", member.getGroupId(), member.getArtifactId(), this.activeVersionGroups.get(i).getName());
+                        member.setDirty(true);
+                        expanded = true;
+                    }
+                }
+            }
+        }
+
+        return expanded;
+    }
+
+    /**
+     * Assign each module to the first version group it matches.
+     */
+    private void assignVersionGroups(List<MavenModule> mavenModules) {
+        if (getVersionGroups() != null) {
+            assignConfiguredVersionGroups(mavenModules);
+        }
+
+        assignVersionPropertyGroups(mavenModules);
+
+        for (int i = 0; i < this.versionGroupModules.size(); i++) {
+            LOG.info("Version group {}: {} members", this.activeVersionGroups.get(i).getName(), this.versionGroupModules.get(i).size());
+        }
+    }
+
+    private void assignConfiguredVersionGroups(List<MavenModule> mavenModules) {
+        List<List<Pattern>> artifactPatterns = new ArrayList<>();
+        List<List<Path>> directories = new ArrayList<>();
+
+        try {
+            for (VersionGroup versionGroup : getVersionGroups()) {
+                List<Pattern> groupArtifactPatterns = new ArrayList<>();
+                if (versionGroup.getArtifacts() != null) {
+                    for (String artifact : versionGroup.getArtifacts()) {
+                        groupArtifactPatterns.add(createArtifactPattern(artifact.trim()));
+                    }
+                }
+                artifactPatterns.add(groupArtifactPatterns);
+
+                List<Path> groupDirectories = new ArrayList<>();
+                if (versionGroup.getDirectories() != null) {
+                    for (String directory : versionGroup.getDirectories()) {
+                        groupDirectories.add(new File(getMavenProject().getBasedir(), directory.trim()).getCanonicalFile().toPath());
+                    }
+                }
+                directories.add(groupDirectories);
+
+                this.activeVersionGroups.add(versionGroup);
+                this.versionGroupModules.add(new ArrayList<>());
+            }
+
+            for (MavenModule mavenModule : mavenModules) {
+                String ga = mavenModule.getGroupId() + ":" + mavenModule.getArtifactId();
+                Path moduleDirectory = mavenModule.getPomFile().getParentFile().getCanonicalFile().toPath();
+
+                for (int i = 0; i < this.versionGroupModules.size(); i++) {
+                    if (matchesAny(ga, artifactPatterns.get(i)) || isInAny(moduleDirectory, directories.get(i))) {
+                        List<MavenModule> members = this.versionGroupModules.get(i);
+                        members.add(mavenModule);
+                        this.versionGroupMembers.put(mavenModule, members);
+                        break;
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to determine version group directories!", e);
+        }
+    }
+
+    /**
+     * Modules taking their version from the same property (CI-friendly versions) form an implicit version group,
+     * unless they are already member of a configured one.
+     */
+    private void assignVersionPropertyGroups(List<MavenModule> mavenModules) {
+        Map<String, List<MavenModule>> modulesByVersionProperty = new LinkedHashMap<>();
+        for (MavenModule mavenModule : mavenModules) {
+            if (mavenModule.getVersionProperty() != null && !this.versionGroupMembers.containsKey(mavenModule)) {
+                modulesByVersionProperty.computeIfAbsent(mavenModule.getVersionProperty(), name -> new ArrayList<>()).add(mavenModule);
+            }
+        }
+
+        for (Map.Entry<String, List<MavenModule>> entry : modulesByVersionProperty.entrySet()) {
+            List<MavenModule> members = entry.getValue();
+            if (members.size() > 1) {
+                VersionGroup versionGroup = new VersionGroup();
+                versionGroup.setName("${" + entry.getKey() + "}");
+                this.activeVersionGroups.add(versionGroup);
+                this.versionGroupModules.add(members);
+                for (MavenModule member : members) {
+                    this.versionGroupMembers.put(member, members);
                 }
             }
         }
     }
 
+    /**
+     * CI-friendly versions: Take the versions of modules with a version like ${revision} from the version properties file.
+     * <br><br>
+     * In composite versions like ${revision}${sha1}${changelist} the first property holds the version, the others
+     * must be empty (e.g. -Dchangelist=), so updating the first property alone sets the new version.
+     */
+    private void resolveVersionProperties(List<MavenModule> mavenModules) {
+        if (getVersionPropertiesFile() == null) {
+            return;
+        }
+
+        Map<String, String> versionProperties = VersionPropertiesFile.load(getVersionPropertiesFile());
+        LOG.debug("Version properties loaded from {}: {}", getVersionPropertiesFile().getAbsolutePath(), versionProperties);
+
+        for (MavenModule mavenModule : mavenModules) {
+            List<String> propertyNames = getPropertyNames(mavenModule.getVersion());
+            if (propertyNames.isEmpty()) {
+                continue;
+            }
+
+            String propertyName = propertyNames.get(0);
+            for (String otherPropertyName : propertyNames.subList(1, propertyNames.size())) {
+                String otherValue = versionProperties.get(otherPropertyName);
+                if (otherValue == null || !otherValue.isEmpty()) {
+                    throw new NonSnapshotPluginException("Cannot update composite version " + mavenModule.getVersion() + " of module "
+                            + mavenModule.getGroupId() + ":" + mavenModule.getArtifactId() + ": Only " + propertyName + " is updated, "
+                            + otherPropertyName + " must be defined empty (-D" + otherPropertyName + "=) in: " + getVersionPropertiesFile().getAbsolutePath());
+                }
+            }
+
+            String version = versionProperties.get(propertyName);
+            if (version != null) {
+                mavenModule.setVersionProperty(propertyName);
+                mavenModule.setVersion(version);
+            } else {
+                LOG.warn("Version property {} of module {}:{} is not defined in: {}", propertyName,
+                        mavenModule.getGroupId(), mavenModule.getArtifactId(), getVersionPropertiesFile().getAbsolutePath());
+            }
+        }
+    }
+
+    private Pattern createArtifactPattern(String artifact) {
+        if (!artifact.contains(":")) {
+            artifact = artifact + ":*";
+        }
+        String regex = artifact.replaceAll("\\.", "\\\\.");
+        regex = regex.replaceAll("\\*", ".*");
+        return Pattern.compile(regex);
+    }
+
+    private boolean matchesAny(String ga, List<Pattern> patterns) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(ga).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isInAny(Path moduleDirectory, List<Path> directories) {
+        for (Path directory : directories) {
+            if (moduleDirectory.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getVersionGroupRevision(List<MavenModule> members) {
+        Long revision = this.versionGroupRevisions.get(members);
+        if (revision == null) {
+            revision = getScmHandler().getCurrentRevisionId(getModuleDirectories(members));
+            this.versionGroupRevisions.put(members, revision);
+        }
+        return revision;
+    }
+
+    private List<File> getModuleDirectories(List<MavenModule> members) {
+        List<File> moduleDirectories = new ArrayList<>(members.size());
+        for (MavenModule member : members) {
+            moduleDirectories.add(member.getPomFile().getParentFile());
+        }
+        return moduleDirectories;
+    }
+
     private void updateUpstreamArtifacts(List<MavenModule> mavenModules) {
+        Map<String, UpdatedUpstreamMavenArtifact> updatedUpstreamArtifacts = resolveUpstreamArtifacts(mavenModules);
+
         for (MavenModule mavenModule : mavenModules) {
             //Parent
             if (mavenModule.getParent() != null) {
-                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifactParent = updateUpstreamArtifact(mavenModule.getParent());
+                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifactParent = updatedUpstreamArtifacts.get(toUpstreamQueryKey(mavenModule.getParent()));
                 if (updatedUpstreamMavenArtifactParent != null) {
                     mavenModule.setParent(updatedUpstreamMavenArtifactParent);
                 }
@@ -197,7 +569,18 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
 
             //Dependencies
             for (MavenModuleDependency moduleDependency : mavenModule.getDependencies()) {
-                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifactDep = updateUpstreamArtifact(moduleDependency.getArtifact());
+                MavenModule propertyModule = findVersionPropertyModule(mavenModule, moduleDependency.getArtifact());
+                if (propertyModule != null) {
+                    MavenModuleProperty versionProperty = propertyModule.getProperties().get(getPropertyName(moduleDependency.getArtifact().getVersion()));
+                    UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifactDep = updatedUpstreamArtifacts.get(
+                            toUpstreamQueryKey(toUpstreamQueryArtifact(mavenModule, moduleDependency.getArtifact())));
+                    if (updatedUpstreamMavenArtifactDep != null) {
+                        updateVersionProperty(propertyModule, versionProperty, updatedUpstreamMavenArtifactDep);
+                    }
+                    continue;
+                }
+
+                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifactDep = updatedUpstreamArtifacts.get(toUpstreamQueryKey(moduleDependency.getArtifact()));
                 if (updatedUpstreamMavenArtifactDep != null) {
                     moduleDependency.setArtifact(updatedUpstreamMavenArtifactDep);
                 }
@@ -205,33 +588,213 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
         }
     }
 
-    private UpdatedUpstreamMavenArtifact updateUpstreamArtifact(MavenArtifact upstreamArtifact) {
-        if (!(upstreamArtifact instanceof MavenModule)) {
-            ProcessedUpstreamDependency upstreamDependency = getUpstreamDependencyHandler().findMatch(upstreamArtifact, getProcessedUpstreamDependencies());
-            if (upstreamDependency != null) {
-                LOG.debug("Upstream dependency found: {}:{}", upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId());
+    /**
+     * Only the property definition gets the new version, so the module defining it becomes dirty instead of
+     * every module referencing the property. The referencing modules inherit the change from their parent.
+     */
+    private void updateVersionProperty(MavenModule propertyModule, MavenModuleProperty versionProperty, UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact) {
+        if (versionProperty.getNewValue() == null) {
+            LOG.info("Marking module {}:{} dirty because upstream dependency {}:{} is dirty. Updating property {} to: {}",
+                    propertyModule.getGroupId(), propertyModule.getArtifactId(),
+                    updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId(),
+                    versionProperty.getName(), updatedUpstreamMavenArtifact.getNewVersion());
+            versionProperty.setNewValue(updatedUpstreamMavenArtifact.getNewVersion());
+            propertyModule.setDirty(true);
+        } else if (!versionProperty.getNewValue().equals(updatedUpstreamMavenArtifact.getNewVersion())) {
+            LOG.warn("Property {} of module {}:{} is already updated to {}. Ignoring version {} of upstream dependency {}:{}",
+                    versionProperty.getName(), propertyModule.getGroupId(), propertyModule.getArtifactId(), versionProperty.getNewValue(),
+                    updatedUpstreamMavenArtifact.getNewVersion(), updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId());
+        }
+    }
 
-                try {
-                    String latestVersion = getUpstreamDependencyHandler().resolveLatestVersion(upstreamArtifact, upstreamDependency, getRepositorySystem(), getRepositorySystemSession(), getRemoteRepositories());
-                    if (latestVersion != null) {
-                        LOG.info("Found newer version for upstream dependency {}:{}: {}", upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), latestVersion);
-                        return new UpdatedUpstreamMavenArtifact(upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), upstreamArtifact.getVersion(), latestVersion);
-                    }
-                } catch (NonSnapshotDependencyResolverException e) {
-                    if (isDontFailOnUpstreamVersionResolution()) {
-                        LOG.warn("Upstream dependency resolution failed (cannot update {}:{}). Error: {}",
-                                upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), e.getMessage());
-                    } else {
-                        throw e;
-                    }
+    /**
+     * @return MavenModule The workspace module (the given one or one of its parents) which defines the property
+     * the version of given upstream artifact refers to, or null
+     */
+    private MavenModule findVersionPropertyModule(MavenModule mavenModule, MavenArtifact upstreamArtifact) {
+        if (!isUpdateUpstreamVersionProperties() || upstreamArtifact instanceof MavenModule) {
+            return null;
+        }
+        String propertyName = getPropertyName(upstreamArtifact.getVersion());
+        if (propertyName == null) {
+            return null;
+        }
+
+        MavenArtifact current = mavenModule;
+        while (current instanceof MavenModule) {
+            MavenModuleProperty property = ((MavenModule) current).getProperties().get(propertyName);
+            if (property != null) {
+                return property.getValue() != null && !property.getValue().contains("${") ? (MavenModule) current : null;
+            }
+            current = ((MavenModule) current).getParent();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return String The property name if the version is a single property reference like ${revision}, otherwise null
+     */
+    private String getPropertyName(String version) {
+        List<String> propertyNames = getPropertyNames(version);
+        return propertyNames.size() == 1 ? propertyNames.get(0) : null;
+    }
+
+    /**
+     * @return List&lt;String&gt; The property names if the version consists of property references only,
+     * like ${revision}${changelist}, otherwise an empty list
+     */
+    private List<String> getPropertyNames(String version) {
+        if (version == null || !PROPERTY_VERSION.matcher(version).matches()) {
+            return Collections.emptyList();
+        }
+        List<String> propertyNames = new ArrayList<>();
+        Matcher matcher = PROPERTY_REFERENCE.matcher(version);
+        while (matcher.find()) {
+            propertyNames.add(matcher.group(1));
+        }
+        return propertyNames;
+    }
+
+    /**
+     * @return MavenArtifact Given artifact or, if its version refers to a property defined in the workspace,
+     * the artifact with the current property value as version
+     */
+    private MavenArtifact toUpstreamQueryArtifact(MavenModule mavenModule, MavenArtifact upstreamArtifact) {
+        MavenModule propertyModule = findVersionPropertyModule(mavenModule, upstreamArtifact);
+        if (propertyModule == null) {
+            return upstreamArtifact;
+        }
+        MavenModuleProperty versionProperty = propertyModule.getProperties().get(getPropertyName(upstreamArtifact.getVersion()));
+        return new MavenArtifact(upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), versionProperty.getValue());
+    }
+
+    /**
+     * Collect the distinct upstream artifacts (groupId:artifactId:version) first and resolve them concurrently.
+     * Failures are handled in the order of the first occurrence, so the outcome doesn't depend on the scheduling.
+     *
+     * @return Map&lt;String, UpdatedUpstreamMavenArtifact&gt; The updated artifacts by groupId:artifactId:version
+     */
+    private Map<String, UpdatedUpstreamMavenArtifact> resolveUpstreamArtifacts(List<MavenModule> mavenModules) {
+        Map<String, MavenArtifact> upstreamArtifacts = new LinkedHashMap<>();
+        Map<String, ProcessedUpstreamDependency> upstreamDependencies = new HashMap<>();
+
+        for (MavenModule mavenModule : mavenModules) {
+            if (mavenModule.getParent() != null) {
+                collectUpstreamArtifact(mavenModule.getParent(), upstreamArtifacts, upstreamDependencies);
+            }
+            for (MavenModuleDependency moduleDependency : mavenModule.getDependencies()) {
+                collectUpstreamArtifact(toUpstreamQueryArtifact(mavenModule, moduleDependency.getArtifact()), upstreamArtifacts, upstreamDependencies);
+            }
+        }
+
+        Map<String, UpdatedUpstreamMavenArtifact> updatedUpstreamArtifacts = new HashMap<>();
+        if (upstreamArtifacts.isEmpty()) {
+            return updatedUpstreamArtifacts;
+        }
+
+        int threads = Math.max(1, Math.min(getUpstreamResolutionThreads(), upstreamArtifacts.size()));
+        LOG.info("Resolving {} upstream artifacts with {} threads", upstreamArtifacts.size(), threads);
+
+        long deadline = getUpstreamResolutionBudget() > 0 ? System.currentTimeMillis() + getUpstreamResolutionBudget() : Long.MAX_VALUE;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nonsnapshot-upstream-resolution");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<UpdatedUpstreamMavenArtifact>> results = new LinkedHashMap<>();
+            for (Map.Entry<String, MavenArtifact> entry : upstreamArtifacts.entrySet()) {
+                final MavenArtifact upstreamArtifact = entry.getValue();
+                final ProcessedUpstreamDependency upstreamDependency = upstreamDependencies.get(entry.getKey());
+                results.put(entry.getKey(), executorService.submit(() -> updateUpstreamArtifact(upstreamArtifact, upstreamDependency)));
+            }
+
+            for (Map.Entry<String, Future<UpdatedUpstreamMavenArtifact>> result : results.entrySet()) {
+                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact = getUpstreamResolutionResult(upstreamArtifacts.get(result.getKey()), result.getValue(), deadline);
+                if (updatedUpstreamMavenArtifact != null) {
+                    updatedUpstreamArtifacts.put(result.getKey(), updatedUpstreamMavenArtifact);
                 }
             }
+
+        } finally {
+            executorService.shutdownNow();
+            getUpstreamDependencyHandler().storeCache();
+        }
+
+        return updatedUpstreamArtifacts;
+    }
+
+    private void collectUpstreamArtifact(MavenArtifact upstreamArtifact, Map<String, MavenArtifact> upstreamArtifacts,
+                                         Map<String, ProcessedUpstreamDependency> upstreamDependencies) {
+        if (upstreamArtifact instanceof MavenModule) {
+            return;
+        }
+
+        String key = toUpstreamQueryKey(upstreamArtifact);
+        if (upstreamArtifacts.containsKey(key)) {
+            return;
+        }
+
+        ProcessedUpstreamDependency upstreamDependency = getUpstreamDependencyHandler().findMatch(upstreamArtifact, getProcessedUpstreamDependencies());
+        if (upstreamDependency != null) {
+            LOG.debug("Upstream dependency found: {}:{}", upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId());
+            upstreamArtifacts.put(key, upstreamArtifact);
+            upstreamDependencies.put(key, upstreamDependency);
+        }
+    }
+
+    private String toUpstreamQueryKey(MavenArtifact upstreamArtifact) {
+        return upstreamArtifact.getGroupId() + ":" + upstreamArtifact.getArtifactId() + ":" + upstreamArtifact.getVersion();
+    }
+
+    private UpdatedUpstreamMavenArtifact getUpstreamResolutionResult(MavenArtifact upstreamArtifact, Future<UpdatedUpstreamMavenArtifact> result, long deadline) {
+        try {
+            if (deadline == Long.MAX_VALUE) {
+                return result.get();
+            }
+            return result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NonSnapshotPluginException("Interrupted while resolving upstream dependencies!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NonSnapshotPluginException("Upstream dependency resolution failed!", e.getCause());
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            if (isDontFailOnUpstreamVersionResolution()) {
+                LOG.warn("Upstream dependency resolution budget exhausted (cannot update {}:{})",
+                        upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId());
+                return null;
+            }
+            throw new NonSnapshotDependencyResolverException("Upstream dependency resolution budget of " + getUpstreamResolutionBudget()
+                    + "ms exhausted before " + upstreamArtifact.getGroupId() + ":" + upstreamArtifact.getArtifactId() + " was resolved");
+        }
+    }
+
+    private UpdatedUpstreamMavenArtifact updateUpstreamArtifact(MavenArtifact upstreamArtifact, ProcessedUpstreamDependency upstreamDependency) {
+        try {
+            String latestVersion = getUpstreamDependencyHandler().resolveLatestVersion(upstreamArtifact, upstreamDependency, getRepositorySystem(), getRepositorySystemSession(), getRemoteRepositories());
+            if (latestVersion != null) {
+                LOG.info("Found newer version for upstream dependency {}:{}: {}", upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), latestVersion);
+                return new UpdatedUpstreamMavenArtifact(upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), upstreamArtifact.getVersion(), latestVersion);
+            }
+        } catch (NonSnapshotDependencyResolverException e) {
+            if (isDontFailOnUpstreamVersionResolution()) {
+                LOG.warn("Upstream dependency resolution failed (cannot update {}:{}). Error: {}",
+                        upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), e.getMessage());
+            } else {
+                throw e;
+            }
         }
 
         return null;
     }
 
-    private void setNextRevisionOnDirtyArtifacts(List<MavenModule> mavenModules) {
+    protected void setNextRevisionOnDirtyArtifacts(List<MavenModule> mavenModules) {
         for (MavenModule mavenModule : mavenModules) {
             File modulesPath = mavenModule.getPomFile().getParentFile();
 
@@ -239,7 +802,11 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
                 if (!getScmHandler().isWorkingCopy(modulesPath)) {
                     throw new NonSnapshotPluginException("Module path is no working directory: " + modulesPath);
                 }
-                if (isUseSvnRevisionQualifier()) {
+                List<MavenModule> versionGroup = this.versionGroupMembers.get(mavenModule);
+                if (isUseSvnRevisionQualifier() && versionGroup != null) {
+                    // All members of a group share the same version
+                    mavenModule.setNewVersion(getBaseVersion() + "-" + getVersionGroupRevision(versionGroup));
+                } else if (isUseSvnRevisionQualifier()) {
                     mavenModule.setNewVersion(getBaseVersion() + "-" + getScmHandler().getCurrentRevisionId(modulesPath));
                 } else {
                     // Use build time as version suffix
@@ -313,7 +880,92 @@ public class NonSnapshotUpdateVersionsMojo extends NonSnapshotBaseMojo {
         }
     }
 
-    private void generateChangedProjectsPropertyFile(List<File> pomFileList) {
+    private void generateIncrementalBuildWaves(List<MavenModule> updatedModules) {
+        List<List<MavenModule>> waves;
+        Map<String, Long> buildTimes = BuildTimeHistory.load(new File(getMavenProject().getBasedir(), BuildTimeHistory.BUILD_TIMES_FILE_NAME));
+        if (buildTimes.isEmpty()) {
+            waves = getDependencyTreeProcessor().calculateBuildWaves(updatedModules);
+        } else {
+            LOG.info("Using recorded build times of {} modules to schedule the build waves", buildTimes.size());
+            waves = getDependencyTreeProcessor().calculateBuildWaves(updatedModules, buildTimes);
+        }
+
+        List<String> waveProjectPaths = new ArrayList<>();
+        for (List<MavenModule> wave : waves) {
+            List<File> pomFileList = new ArrayList<>(wave.size());
+            for (MavenModule mavenModule : wave) {
+                pomFileList.add(mavenModule.getPomFile());
+            }
+            waveProjectPaths.add(createProjectPathsString(pomFileList));
+        }
+
+        File wavesFile = new File(getMavenProject().getBasedir(), "nonsnapshotBuildWaves.txt");
+        LOG.info("Writing {} build waves to: {}", waveProjectPaths.size(), wavesFile.getAbsolutePath());
+
+        try (PrintWriter writer = new PrintWriter(wavesFile)) {
+            writer.write("#Build waves generated by nonsnapshot-maven-plugin\n");
+            writer.write("#Each line contains the projects of one wave, which only depend on projects of previous waves\n");
+            for (String projectPaths : waveProjectPaths) {
+                writer.write(projectPaths + "\n");
+            }
+
+        } catch (IOException e) {
+            LOG.error("Failed to write build waves file!", e);
+        }
+
+        if (isWindows()) {
+            File batFile = new File(getMavenProject().getBasedir(), "nonsnapshotBuildWaves.bat");
+            LOG.info("Writing windows batch script for the build waves to: {}", batFile.getAbsolutePath());
+
+            try (PrintWriter writer = new PrintWriter(batFile)) {
+                writer.write("@ECHO OFF\n");
+                writer.write("REM Incremental build script generated by nonsnapshot-maven-plugin\n");
+                writer.write("REM Builds the modified modules wave by wave, with parallel builds within a wave.\n");
+                writer.write("REM To install all modified modules call:\n");
+                writer.write("REM nonsnapshotBuildWaves.bat install\n\n");
+                writer.write("SET MVN_EXEC=mvn.cmd\n");
+                writer.write("IF DEFINED M2_HOME (set MVN_EXEC=%M2_HOME%\\bin\\mvn.cmd)\n");
+                writer.write("IF NOT DEFINED MVN_THREADS (set MVN_THREADS=1C)\n");
+                writer.write("ECHO Using maven executable: %MVN_EXEC%\n");
+                for (int i = 0; i < waveProjectPaths.size(); i++) {
+                    writer.write("ECHO Building wave " + (i + 1) + " of " + waveProjectPaths.size() + "\n");
+                    writer.write("CALL %MVN_EXEC% -T %MVN_THREADS% --projects " + waveProjectPaths.get(i) + " %* || EXIT /B 1\n");
+                }
+
+            } catch (IOException e) {
+                LOG.error("Failed to write windows batch script for the build waves!", e);
+            }
+        } else {
+
+            File shellFile = new File(getMavenProject().getBasedir(), "nonsnapshotBuildWaves.sh");
+            LOG.info("Writing unix shell script for the build waves to: {}", shellFile.getAbsolutePath());
+
+            try (PrintWriter writer = new PrintWriter(shellFile)) {
+                writer.write("#!/bin/sh\n");
+                writer.write("# Incremental build script generated by nonsnapshot-maven-plugin\n");
+                writer.write("# Builds the modified modules wave by wave, with parallel builds within a wave.\n");
+                writer.write("# To install all modified modules call:\n");
+                writer.write("# ./nonsnapshotBuildWaves.sh install\n\n");
+                writer.write("MVN_EXEC=mvn\n");
+                writer.write("if [ ! -z \"$M2_HOME\" ]; then\n");
+                writer.write("  MVN_EXEC=$M2_HOME/bin/mvn\n");
+                writer.write("fi\n");
+                writer.write("MVN_THREADS=${MVN_THREADS:-1C}\n");
+                writer.write("echo \"Using maven executable: $MVN_EXEC\"\n");
+                for (int i = 0; i < waveProjectPaths.size(); i++) {
+                    writer.write("echo \"Building wave " + (i + 1) + " of " + waveProjectPaths.size() + "\"\n");
+                    writer.write("$MVN_EXEC -T $MVN_THREADS --projects " + waveProjectPaths.get(i) + " \"$@\" || exit 1\n");
+                }
+
+                Runtime.getRuntime().exec("chmod u+x " + shellFile.getAbsolutePath());
+
+            } catch (IOException e) {
+                LOG.error("Failed to write unix shell script for the build waves!", e);
+            }
+        }
+    }
+
+    protected void generateChangedProjectsPropertyFile(List<File> pomFileList) {
         String projectPaths = createProjectPathsString(pomFileList);
         if (projectPaths.isEmpty()) {
             projectPaths = "."; //An empty property wont work on Jenkins
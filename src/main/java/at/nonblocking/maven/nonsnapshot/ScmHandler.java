@@ -47,6 +47,18 @@ public interface ScmHandler {
      */
     long getCurrentRevisionId(File path);
 
+    /**
+     * Get the highest current revision id of the given paths.
+     * <br>
+     * The revision is read from the working copy of each path, no remote call is required.
+     * <br>
+     * Only supported by SVN. Other implementations may throw NotImplementedExceptions.
+     *
+     * @param paths List&lt;File&gt;
+     * @return long
+     */
+    long getCurrentRevisionId(List<File> paths);
+
     /**
      * Check if there has been changes since given revisionId
      *
@@ -57,6 +69,16 @@ public interface ScmHandler {
      */
     boolean checkChangesSinceRevision(File moduleDirectory, long sinceRevision, long workspaceRevision);
 
+    /**
+     * Check if there has been changes in any of the given directories since given revisionId
+     *
+     * @param moduleDirectories List&lt;File&gt;
+     * @param sinceRevision     long
+     * @param workspaceRevision long
+     * @return boolean
+     */
+    boolean checkChangesSinceRevision(List<File> moduleDirectories, long sinceRevision, long workspaceRevision);
+
     /**
      * Get date of last commit within given path.
      *
@@ -65,6 +87,16 @@ public interface ScmHandler {
      */
     Date getLastCommitDate(File path);
 
+    /**
+     * Get date of last commit within any of the given paths.
+     * <br>
+     * The SVN implementation reads it with a single log call over all paths.
+     *
+     * @param paths List&lt;File&gt;
+     * @return Date
+     */
+    Date getLastCommitDate(List<File> paths);
+
     /**
      * Check if there has been changes since given date
      *
@@ -75,6 +107,16 @@ public interface ScmHandler {
      */
     boolean checkChangesSinceDate(File moduleDirectory, Date sinceDate, Date workspaceLastCommitDate);
 
+    /**
+     * Check if there has been changes in any of the given directories since given date
+     *
+     * @param moduleDirectories       List&lt;File&gt;
+     * @param sinceDate               Date
+     * @param workspaceLastCommitDate Date
+     * @return boolean
+     */
+    boolean checkChangesSinceDate(List<File> moduleDirectories, Date sinceDate, Date workspaceLastCommitDate);
+
 
     /**
      * Commit the given path to the remote repository.
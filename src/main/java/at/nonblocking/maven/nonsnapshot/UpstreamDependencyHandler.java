@@ -22,6 +22,7 @@ import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
 
 import java.util.List;
+import java.util.Properties;
 
 /**
  * Handler for upstream dependencies
@@ -30,6 +31,35 @@ import java.util.List;
  */
 public interface UpstreamDependencyHandler {
 
+    String PROPERTY_CACHE_DIRECTORY = "upstreamCacheDirectory";
+    String PROPERTY_CACHE_TIME_TO_LIVE = "upstreamCacheTimeToLive";
+    String PROPERTY_CACHE_REFRESH = "upstreamCacheRefresh";
+    String PROPERTY_OFFLINE_RESOLUTION = "upstreamOfflineResolution";
+    String PROPERTY_METADATA_MAX_AGE = "upstreamMetadataMaxAge";
+    String PROPERTY_QUERY_TIMEOUT = "upstreamQueryTimeout";
+    String PROPERTY_QUERY_THREADS = "upstreamQueryThreads";
+    String PROPERTY_CIRCUIT_BREAKER_THRESHOLD = "upstreamCircuitBreakerThreshold";
+
+    /**
+     * Configure the handler. Supported properties:
+     * <ul>
+     * <li>upstreamCacheDirectory: Directory of the persistent version cache</li>
+     * <li>upstreamCacheTimeToLive: Minutes a resolved version stays valid in the persistent cache (0 disables the cache)</li>
+     * <li>upstreamCacheRefresh: If true the cached versions are ignored, but the cache is still updated</li>
+     * <li>upstreamOfflineResolution: If true the versions are taken from the metadata in the local repository</li>
+     * <li>upstreamMetadataMaxAge: Minutes after which local metadata is considered stale and the remote repositories
+     * are queried instead (0 means never)</li>
+     * <li>upstreamQueryTimeout: Milliseconds after which a single version query is given up (0 means no timeout)</li>
+     * <li>upstreamQueryThreads: Maximum number of concurrent version queries with a timeout</li>
+     * <li>upstreamCircuitBreakerThreshold: Number of consecutive failures after which no more queries are sent
+     * to the same repository (0 means never)</li>
+     * </ul>
+     * Must be followed by {@link #shutdown()} at the end of the goal execution.
+     *
+     * @param properties Properties
+     */
+    void init(Properties properties);
+
     /**
      * Process the upstream dependency list from the configuration and create objects from it.
      *
@@ -41,7 +71,7 @@ public interface UpstreamDependencyHandler {
     /**
      * Find a matching upstream dependency declaration for given maven artifact.
      * <br>
-     * Used to decide if a given dependency is an upstream dependency.
+     * Used to decide if a given dependency is an upstream dependency. The first matching declaration wins.
      *
      * @param mavenArtifact        MavenArtifact
      * @param upstreamDependencies List&lt;ProcessedUpstreamDependency&gt;
@@ -51,6 +81,8 @@ public interface UpstreamDependencyHandler {
 
     /**
      * Try to find a newer version for given upstream dependency. Return null if no newer exits.
+     * <br>
+     * Identical version queries are resolved only once per Maven session.
      *
      * @param mavenArtifact           MavenArtifact
      * @param upstreamDependency      UpstreamDependency
@@ -63,4 +95,16 @@ public interface UpstreamDependencyHandler {
                                 RepositorySystem repositorySystem, RepositorySystemSession repositorySystemSession,
                                 List<RemoteRepository> remoteRepositories) throws NonSnapshotDependencyResolverException;
 
+    /**
+     * Write the versions resolved since the last call to the persistent cache.
+     * <br>
+     * Should be called once after all upstream dependencies have been resolved.
+     */
+    void storeCache();
+
+    /**
+     * Release the resources acquired by {@link #init(Properties)}, e.g. the query threads.
+     */
+    void shutdown();
+
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+
+/**
+ * Reads and writes the version properties for CI-friendly versions (e.g. ${revision}).
+ * <br><br>
+ * A file named <i>maven.config</i> (usually <i>.mvn/maven.config</i>) is treated as Maven command line with
+ * -Dname=value arguments, any other file as property file. Only the values of the given properties are
+ * replaced when writing, the rest of the file stays as it is.
+ *
+ * @author Juergen Kofler
+ */
+public final class VersionPropertiesFile {
+
+    public static final String MAVEN_CONFIG_FILE_NAME = "maven.config";
+
+    private static final Pattern MAVEN_CONFIG_PROPERTY = Pattern.compile("(?:^|\\s)-D([^=\\s]+)=(\\S*)");
+
+    private VersionPropertiesFile() {
+    }
+
+    /**
+     * Load the properties from given file.
+     *
+     * @param versionPropertiesFile File
+     * @return Map&lt;String, String&gt; Empty if the file doesn't exist
+     */
+    public static Map<String, String> load(File versionPropertiesFile) {
+        Map<String, String> versionProperties = new LinkedHashMap<>();
+        if (!versionPropertiesFile.exists()) {
+            return versionProperties;
+        }
+
+        String content = read(versionPropertiesFile);
+
+        if (isMavenConfig(versionPropertiesFile)) {
+            Matcher matcher = MAVEN_CONFIG_PROPERTY.matcher(content);
+            while (matcher.find()) {
+                versionProperties.put(matcher.group(1), matcher.group(2));
+            }
+        } else {
+            Properties properties = new Properties();
+            try {
+                properties.load(new StringReader(content));
+            } catch (IOException e) {
+                throw new NonSnapshotPluginException("Failed to read version properties file: " + versionPropertiesFile.getAbsolutePath(), e);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                versionProperties.put(name, properties.getProperty(name).trim());
+            }
+        }
+
+        return versionProperties;
+    }
+
+    /**
+     * Set given properties in the file. Properties not yet contained are appended.
+     * <br><br>
+     * Like the POM files the file keeps its line separators and is replaced atomically.
+     *
+     * @param versionPropertiesFile File
+     * @param versionProperties Map&lt;String, String&gt;
+     */
+    public static void store(File versionPropertiesFile, Map<String, String> versionProperties) {
+        String content = versionPropertiesFile.exists() ? read(versionPropertiesFile) : "";
+        boolean mavenConfig = isMavenConfig(versionPropertiesFile);
+        String lineSeparator = getLineSeparator(content);
+
+        for (Map.Entry<String, String> versionProperty : versionProperties.entrySet()) {
+            String name = Pattern.quote(versionProperty.getKey());
+            String value = Matcher.quoteReplacement(versionProperty.getValue());
+
+            Matcher matcher = mavenConfig
+                    ? Pattern.compile("((?:^|\\s)-D" + name + "=)\\S*").matcher(content)
+                    : Pattern.compile("(?m)^(\\s*" + name + "\\s*[=:]\\s*).*$").matcher(content);
+
+            if (matcher.find()) {
+                content = matcher.replaceAll("$1" + value);
+            } else {
+                String separator = content.isEmpty() || content.endsWith("\n") ? "" : lineSeparator;
+                String entry = mavenConfig
+                        ? "-D" + versionProperty.getKey() + "=" + versionProperty.getValue()
+                        : versionProperty.getKey() + "=" + versionProperty.getValue();
+                content = content + separator + entry + lineSeparator;
+            }
+        }
+
+        Path path = versionPropertiesFile.getAbsoluteFile().toPath();
+        try {
+            Files.createDirectories(path.getParent());
+
+            Path tempPath = path.resolveSibling("." + path.getFileName() + ".nonsnapshot");
+            Files.write(tempPath, content.getBytes(getCharset(versionPropertiesFile)));
+            if (Files.exists(path)) {
+                copyPermissions(path, tempPath);
+            }
+
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to write version properties file: " + versionPropertiesFile.getAbsolutePath(), e);
+        }
+    }
+
+    private static String read(File versionPropertiesFile) {
+        try {
+            return new String(Files.readAllBytes(versionPropertiesFile.toPath()), getCharset(versionPropertiesFile));
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException("Failed to read version properties file: " + versionPropertiesFile.getAbsolutePath(), e);
+        }
+    }
+
+    private static String getLineSeparator(String content) {
+        int newLine = content.indexOf('\n');
+        if (newLine < 0) {
+            return System.getProperty("line.separator");
+        }
+        return newLine > 0 && content.charAt(newLine - 1) == '\r' ? "\r\n" : "\n";
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceAttributes = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (sourceAttributes != null) {
+            Files.setPosixFilePermissions(target, sourceAttributes.readAttributes().permissions());
+        }
+    }
+
+    private static boolean isMavenConfig(File versionPropertiesFile) {
+        return MAVEN_CONFIG_FILE_NAME.equals(versionPropertiesFile.getName());
+    }
+
+    private static Charset getCharset(File versionPropertiesFile) {
+        return isMavenConfig(versionPropertiesFile) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    }
+
+}
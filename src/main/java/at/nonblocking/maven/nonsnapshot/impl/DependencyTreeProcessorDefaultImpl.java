@@ -16,7 +16,17 @@
 package at.nonblocking.maven.nonsnapshot.impl;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
 
 import at.nonblocking.maven.nonsnapshot.model.UpdatedUpstreamMavenArtifact;
 import org.codehaus.plexus.component.annotations.Component;
@@ -24,7 +34,9 @@ import org.codehaus.plexus.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.nonblocking.maven.nonsnapshot.BuildTimeHistory;
 import at.nonblocking.maven.nonsnapshot.DependencyTreeProcessor;
+import at.nonblocking.maven.nonsnapshot.DirtyModuleTracker;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import at.nonblocking.maven.nonsnapshot.model.MavenModule;
 import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
@@ -39,11 +51,15 @@ public class DependencyTreeProcessorDefaultImpl implements DependencyTreeProcess
 
     private static final Logger LOG = LoggerFactory.getLogger(DependencyTreeProcessorDefaultImpl.class);
 
+    private static final int MAX_WAVE_OPTIMIZATION_PASSES = 10;
+
     @Override
     public void buildDependencyTree(List<MavenModule> mavenModules) {
+        Map<String, MavenModule> moduleIndex = createModuleIndex(mavenModules);
+
         for (MavenModule mavenModule : mavenModules) {
             if (mavenModule.getParent() != null) {
-                MavenModule parentModule = findArtifact(mavenModules, mavenModule.getParent().getGroupId(), mavenModule.getParent().getArtifactId());
+                MavenModule parentModule = moduleIndex.get(toKey(mavenModule.getParent()));
                 if (parentModule != null) {
                     parentModule.getChildren().add(mavenModule);
                     mavenModule.setParent(parentModule);
@@ -51,8 +67,7 @@ public class DependencyTreeProcessorDefaultImpl implements DependencyTreeProcess
             }
 
             for (MavenModuleDependency dependency : mavenModule.getDependencies()) {
-                MavenModule dependencyModule = findArtifact(mavenModules, dependency.getArtifact().getGroupId(), dependency.getArtifact()
-                        .getArtifactId());
+                MavenModule dependencyModule = moduleIndex.get(toKey(dependency.getArtifact()));
                 if (dependencyModule != null) {
                     dependency.setArtifact(dependencyModule);
                 }
@@ -60,70 +75,582 @@ public class DependencyTreeProcessorDefaultImpl implements DependencyTreeProcess
         }
     }
 
-    private MavenModule findArtifact(List<MavenModule> artifacts, String groupId, String artifactId) {
-        for (MavenModule artifact : artifacts) {
-            if (groupId.equals(artifact.getGroupId()) && artifactId.equals(artifact.getArtifactId())) {
-                return artifact;
+    private Map<String, MavenModule> createModuleIndex(List<MavenModule> mavenModules) {
+        Map<String, MavenModule> moduleIndex = new HashMap<>(mavenModules.size() * 2);
+
+        for (MavenModule mavenModule : mavenModules) {
+            // If the same module exists more than once, the first one wins
+            if (moduleIndex.putIfAbsent(toKey(mavenModule), mavenModule) != null) {
+                LOG.debug("Duplicate module {}:{} found in workspace: {}",
+                        mavenModule.getGroupId(), mavenModule.getArtifactId(), mavenModule.getPomFile());
             }
         }
 
-        return null;
+        return moduleIndex;
+    }
+
+    private String toKey(MavenArtifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId();
     }
 
     @Override
-    public boolean markAllArtifactsDirtyWithDirtyDependencies(List<MavenModule> mavenModules) {
-        boolean changes = false;
+    public List<MavenModule> sortInDependencyOrder(List<MavenModule> mavenModules) {
+        ModuleGraph graph = new ModuleGraph(mavenModules);
 
-        for (MavenModule mavenModule : mavenModules) {
-            if (mavenModule.isDirty()) {
-                continue;
+        List<MavenModule> sortedModules = new ArrayList<>(mavenModules.size());
+        for (int[] component : findStronglyConnectedComponents(graph)) {
+            for (int id : component) {
+                sortedModules.add(graph.getModule(id));
             }
+        }
 
-            if (mavenModule.getParent() != null) {
-                if (mavenModule.getParent() instanceof MavenModule) {
-                    MavenModule parentModule = (MavenModule) mavenModule.getParent();
-                    if (parentModule.isDirty()) {
-                        LOG.info("Marking module {}:{} dirty because parent is dirty.", mavenModule.getGroupId(), mavenModule.getArtifactId());
-                        mavenModule.setDirty(true);
-                        changes = true;
+        return sortedModules;
+    }
+
+    @Override
+    public List<List<MavenModule>> findDependencyCycles(List<MavenModule> mavenModules) {
+        ModuleGraph graph = new ModuleGraph(mavenModules);
+
+        List<List<MavenModule>> cycles = new ArrayList<>();
+        for (int[] component : findStronglyConnectedComponents(graph)) {
+            if (component.length > 1 || graph.hasSuccessor(component[0], component[0])) {
+                List<MavenModule> cycle = new ArrayList<>(component.length);
+                for (int id : component) {
+                    cycle.add(graph.getModule(id));
+                }
+                cycles.add(cycle);
+            }
+        }
+
+        return cycles;
+    }
+
+    @Override
+    public List<List<MavenModule>> calculateBuildWaves(List<MavenModule> mavenModules) {
+        ModuleGraph graph = new ModuleGraph(mavenModules);
+
+        // The components come dependencies first, so the waves of all successors are known
+        int[] waves = new int[graph.size()];
+        int waveCount = 0;
+        for (int[] component : findStronglyConnectedComponents(graph)) {
+            int wave = 0;
+            for (int id : component) {
+                for (int e = graph.getSuccessorStart(id); e < graph.getSuccessorEnd(id); e++) {
+                    int successorId = graph.getSuccessor(e);
+                    if (Arrays.binarySearch(component, successorId) < 0) {
+                        wave = Math.max(wave, waves[successorId] + 1);
+                    }
+                }
+            }
+            for (int id : component) {
+                waves[id] = wave;
+            }
+            waveCount = Math.max(waveCount, wave + 1);
+        }
+
+        List<List<MavenModule>> buildWaves = new ArrayList<>(waveCount);
+        for (int i = 0; i < waveCount; i++) {
+            buildWaves.add(new ArrayList<MavenModule>());
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            buildWaves.get(waves[id]).add(graph.getModule(id));
+        }
+
+        return buildWaves;
+    }
+
+    @Override
+    public List<List<MavenModule>> calculateBuildWaves(List<MavenModule> mavenModules, Map<String, Long> buildTimes) {
+        ModuleGraph graph = new ModuleGraph(mavenModules);
+        List<int[]> components = findStronglyConnectedComponents(graph);
+        int componentCount = components.size();
+
+        int[] componentOf = new int[graph.size()];
+        for (int c = 0; c < componentCount; c++) {
+            for (int id : components.get(c)) {
+                componentOf[id] = c;
+            }
+        }
+
+        long[] weights = calculateComponentWeights(graph, components, buildTimes);
+
+        // Earliest wave (components come dependencies first)
+        int[] earliest = new int[componentCount];
+        int waveCount = 0;
+        for (int c = 0; c < componentCount; c++) {
+            for (int id : components.get(c)) {
+                for (int e = graph.getSuccessorStart(id); e < graph.getSuccessorEnd(id); e++) {
+                    int dependencyComponent = componentOf[graph.getSuccessor(e)];
+                    if (dependencyComponent != c) {
+                        earliest[c] = Math.max(earliest[c], earliest[dependencyComponent] + 1);
+                    }
+                }
+            }
+            waveCount = Math.max(waveCount, earliest[c] + 1);
+        }
+
+        // Critical path: The longest build time of the component and everything depending on it
+        long[] criticalPath = new long[componentCount];
+        for (int c = componentCount - 1; c >= 0; c--) {
+            long dependentsPath = 0;
+            for (int id : components.get(c)) {
+                for (int e = graph.getPredecessorStart(id); e < graph.getPredecessorEnd(id); e++) {
+                    int dependentComponent = componentOf[graph.getPredecessor(e)];
+                    if (dependentComponent != c) {
+                        dependentsPath = Math.max(dependentsPath, criticalPath[dependentComponent]);
+                    }
+                }
+            }
+            criticalPath[c] = weights[c] + dependentsPath;
+        }
+
+        // Start with the earliest wave and move single components to the wave within their dependency
+        // constraints where they reduce the total build time the most (the sum of the longest component per wave)
+        // The component weights per wave with their number of occurrences, the last key is the wave duration
+        int[] assignedWave = Arrays.copyOf(earliest, componentCount);
+        List<TreeMap<Long, Integer>> waveWeights = new ArrayList<>(waveCount);
+        for (int i = 0; i < waveCount; i++) {
+            waveWeights.add(new TreeMap<Long, Integer>());
+        }
+        for (int c = 0; c < componentCount; c++) {
+            addWaveWeight(waveWeights.get(assignedWave[c]), weights[c]);
+        }
+
+        List<Integer> criticalPathFirst = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            criticalPathFirst.add(c);
+        }
+        criticalPathFirst.sort((c1, c2) -> {
+            int result = Long.compare(criticalPath[c2], criticalPath[c1]);
+            return result != 0 ? result : Integer.compare(c1, c2);
+        });
+
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_WAVE_OPTIMIZATION_PASSES; pass++) {
+            improved = false;
+            for (int c : criticalPathFirst) {
+                int currentWave = assignedWave[c];
+                int lowerBound = 0;
+                int upperBound = waveCount - 1;
+                for (int id : components.get(c)) {
+                    for (int e = graph.getSuccessorStart(id); e < graph.getSuccessorEnd(id); e++) {
+                        int dependencyComponent = componentOf[graph.getSuccessor(e)];
+                        if (dependencyComponent != c) {
+                            lowerBound = Math.max(lowerBound, assignedWave[dependencyComponent] + 1);
+                        }
+                    }
+                    for (int e = graph.getPredecessorStart(id); e < graph.getPredecessorEnd(id); e++) {
+                        int dependentComponent = componentOf[graph.getPredecessor(e)];
+                        if (dependentComponent != c) {
+                            upperBound = Math.min(upperBound, assignedWave[dependentComponent] - 1);
+                        }
+                    }
+                }
+
+                TreeMap<Long, Integer> currentWaveWeights = waveWeights.get(currentWave);
+                long saving = getWaveDuration(currentWaveWeights) - getWaveDurationWithout(currentWaveWeights, weights[c]);
+
+                int bestWave = currentWave;
+                long bestGain = 0;
+                for (int wave = lowerBound; wave <= upperBound; wave++) {
+                    if (wave == currentWave) {
                         continue;
                     }
-                } else if (mavenModule.getParent() instanceof UpdatedUpstreamMavenArtifact) {
-                    UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact = (UpdatedUpstreamMavenArtifact) mavenModule.getParent();
-                    LOG.info("Marking module {}:{} dirty because upstream parent is dirty: {}:{}.",
-                            mavenModule.getGroupId(), mavenModule.getArtifactId(),
-                            updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId());
-                    mavenModule.setDirty(true);
-                    changes = true;
-                    continue;
+                    long increase = Math.max(0, weights[c] - getWaveDuration(waveWeights.get(wave)));
+                    if (saving - increase > bestGain) {
+                        bestWave = wave;
+                        bestGain = saving - increase;
+                    }
+                }
+
+                if (bestWave != currentWave) {
+                    removeWaveWeight(currentWaveWeights, weights[c]);
+                    addWaveWeight(waveWeights.get(bestWave), weights[c]);
+                    assignedWave[c] = bestWave;
+                    improved = true;
                 }
             }
+        }
 
-            for (MavenModuleDependency dependency : mavenModule.getDependencies()) {
-                if (dependency.getArtifact() instanceof MavenModule) {
-                    MavenModule parentModule = (MavenModule) dependency.getArtifact();
-                    if (parentModule.isDirty()) {
-                        LOG.info("Marking module {}:{} dirty because dependency is dirty: {}:{}",
-                                mavenModule.getGroupId(), mavenModule.getArtifactId(), parentModule.getGroupId(), parentModule.getArtifactId());
-                        mavenModule.setDirty(true);
-                        changes = true;
-                        break;
+        long totalDuration = 0;
+        for (TreeMap<Long, Integer> weightsOfWave : waveWeights) {
+            totalDuration += getWaveDuration(weightsOfWave);
+        }
+        LOG.debug("Estimated build time of {} waves: {}ms", waveCount, totalDuration);
+
+        // Within a wave the modules with the longest critical path come first
+        List<Integer> componentOrder = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            componentOrder.add(c);
+        }
+        componentOrder.sort((c1, c2) -> {
+            int result = Long.compare(criticalPath[c2], criticalPath[c1]);
+            return result != 0 ? result : Integer.compare(components.get(c1)[0], components.get(c2)[0]);
+        });
+
+        List<List<MavenModule>> buildWaves = new ArrayList<>(waveCount);
+        for (int i = 0; i < waveCount; i++) {
+            buildWaves.add(new ArrayList<MavenModule>());
+        }
+        for (int c : componentOrder) {
+            for (int id : components.get(c)) {
+                buildWaves.get(assignedWave[c]).add(graph.getModule(id));
+            }
+        }
+
+        return buildWaves;
+    }
+
+    private void addWaveWeight(TreeMap<Long, Integer> waveWeights, long weight) {
+        waveWeights.merge(weight, 1, Integer::sum);
+    }
+
+    private void removeWaveWeight(TreeMap<Long, Integer> waveWeights, long weight) {
+        waveWeights.computeIfPresent(weight, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private long getWaveDuration(TreeMap<Long, Integer> waveWeights) {
+        return waveWeights.isEmpty() ? 0 : waveWeights.lastKey();
+    }
+
+    /**
+     * The wave duration if one component with given weight would be removed from the wave.
+     */
+    private long getWaveDurationWithout(TreeMap<Long, Integer> waveWeights, long weight) {
+        Map.Entry<Long, Integer> longest = waveWeights.lastEntry();
+        if (longest.getKey() != weight || longest.getValue() > 1) {
+            return longest.getKey();
+        }
+        Long next = waveWeights.lowerKey(weight);
+        return next != null ? next : 0;
+    }
+
+    /**
+     * The build time of a component is the sum of its members. Modules without a recorded
+     * build time get the average of the recorded ones.
+     */
+    private long[] calculateComponentWeights(ModuleGraph graph, List<int[]> components, Map<String, Long> buildTimes) {
+        long[] moduleWeights = new long[graph.size()];
+        long knownSum = 0;
+        int knownCount = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            Long buildTime = buildTimes != null ? buildTimes.get(BuildTimeHistory.key(graph.getModule(id))) : null;
+            if (buildTime != null) {
+                moduleWeights[id] = Math.max(1, buildTime);
+                knownSum += moduleWeights[id];
+                knownCount++;
+            } else {
+                moduleWeights[id] = -1;
+            }
+        }
+
+        long defaultWeight = knownCount > 0 ? Math.max(1, knownSum / knownCount) : 1;
+
+        long[] weights = new long[components.size()];
+        for (int c = 0; c < components.size(); c++) {
+            for (int id : components.get(c)) {
+                weights[c] += moduleWeights[id] != -1 ? moduleWeights[id] : defaultWeight;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Iterative Tarjan algorithm over the parent and dependency edges.
+     * The components are returned dependencies first, the members of each component in workspace order.
+     */
+    private List<int[]> findStronglyConnectedComponents(ModuleGraph graph) {
+        int moduleCount = graph.size();
+
+        int[] index = new int[moduleCount];
+        int[] lowLink = new int[moduleCount];
+        int[] edgePosition = new int[moduleCount];
+        boolean[] onStack = new boolean[moduleCount];
+        int[] stack = new int[moduleCount];
+        int[] callStack = new int[moduleCount];
+        Arrays.fill(index, -1);
+
+        List<int[]> components = new ArrayList<>();
+        int nextIndex = 0;
+        int stackSize = 0;
+
+        for (int root = 0; root < moduleCount; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+
+            int callStackSize = 0;
+            index[root] = lowLink[root] = nextIndex++;
+            edgePosition[root] = graph.getSuccessorStart(root);
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            callStack[callStackSize++] = root;
+
+            while (callStackSize > 0) {
+                int v = callStack[callStackSize - 1];
+
+                if (edgePosition[v] < graph.getSuccessorEnd(v)) {
+                    int w = graph.getSuccessor(edgePosition[v]++);
+                    if (index[w] == -1) {
+                        index[w] = lowLink[w] = nextIndex++;
+                        edgePosition[w] = graph.getSuccessorStart(w);
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callStack[callStackSize++] = w;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
                     }
-                } else if (dependency.getArtifact() instanceof UpdatedUpstreamMavenArtifact) {
-                    UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact = (UpdatedUpstreamMavenArtifact) dependency.getArtifact();
-                    LOG.info("Marking module {}:{} dirty because upstream dependency is dirty: {}:{}",
-                            mavenModule.getGroupId(), mavenModule.getArtifactId(),
-                            updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId());
-                    mavenModule.setDirty(true);
-                    changes = true;
-                    break;
+                    continue;
                 }
+
+                callStackSize--;
+                if (callStackSize > 0) {
+                    int caller = callStack[callStackSize - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[v]);
+                }
+
+                if (lowLink[v] == index[v]) {
+                    int componentStart = stackSize;
+                    do {
+                        componentStart--;
+                        onStack[stack[componentStart]] = false;
+                    } while (stack[componentStart] != v);
+
+                    int[] component = Arrays.copyOfRange(stack, componentStart, stackSize);
+                    Arrays.sort(component);
+                    components.add(component);
+                    stackSize = componentStart;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    @Override
+    public boolean markAllArtifactsDirtyWithDirtyDependencies(List<MavenModule> mavenModules) {
+        return markAllArtifactsDirtyWithDirtyDependencies(mavenModules, false);
+    }
+
+    @Override
+    public boolean markAllArtifactsDirtyWithDirtyDependencies(List<MavenModule> mavenModules, boolean parallel) {
+        return markAllArtifactsDirtyWithDirtyDependencies(new ModuleGraph(mavenModules), new BitSet(mavenModules.size()), parallel);
+    }
+
+    @Override
+    public DirtyModuleTracker createDirtyModuleTracker(List<MavenModule> mavenModules, Function<MavenModule, String> newVersionFunction) {
+        ModuleGraph graph = new ModuleGraph(mavenModules);
+        BitSet seedSet = new BitSet(mavenModules.size());
+
+        markAllArtifactsDirtyWithDirtyDependencies(graph, seedSet, false);
+
+        return new DirtyModuleTrackerDefaultImpl(graph, seedSet, newVersionFunction);
+    }
+
+    private boolean markAllArtifactsDirtyWithDirtyDependencies(ModuleGraph graph, BitSet seedSet, boolean parallel) {
+        int[] seeds = new int[graph.size()];
+        int seedCount = 0;
+        boolean changes = false;
+
+        // Seeds: Modules which are already dirty or depend on an updated upstream artifact
+        for (int id = 0; id < graph.size(); id++) {
+            if (graph.isDirty(id)) {
+                seeds[seedCount++] = id;
+            } else if (markDirtyIfUpstreamArtifactUpdated(graph.getModule(id))) {
+                graph.setDirty(id);
+                seeds[seedCount++] = id;
+                changes = true;
+            }
+        }
+        for (int i = 0; i < seedCount; i++) {
+            seedSet.set(seeds[i]);
+        }
+
+        seeds = Arrays.copyOf(seeds, seedCount);
+        int[] levels = parallel ? propagateDirtyParallel(graph, seeds) : propagateDirty(graph, seeds);
+
+        // The reason for each module is derived from the levels only,
+        // so it does not depend on the order in which the modules have been reached
+        for (int id = 0; id < graph.size(); id++) {
+            if (levels[id] > 0) {
+                logMarkedDirty(graph.getModule(id), graph.getModule(findDirtyCause(graph, levels, id)));
+                graph.setDirty(id);
+                changes = true;
             }
         }
 
+        graph.applyDirtyState();
+
         return changes;
     }
 
+    /**
+     * Log why a module has been marked dirty.
+     *
+     * @param mavenModule MavenModule The module marked dirty
+     * @param dirtyModule MavenModule The dirty parent or dependency
+     */
+    protected void logMarkedDirty(MavenModule mavenModule, MavenModule dirtyModule) {
+        if (mavenModule.getParent() == dirtyModule) {
+            LOG.info("Marking module {}:{} dirty because parent is dirty.", mavenModule.getGroupId(), mavenModule.getArtifactId());
+        } else {
+            LOG.info("Marking module {}:{} dirty because dependency is dirty: {}:{}",
+                    mavenModule.getGroupId(), mavenModule.getArtifactId(), dirtyModule.getGroupId(), dirtyModule.getArtifactId());
+        }
+    }
+
+    /**
+     * The cause is the parent or the first dependency in declaration order one level closer to a seed.
+     */
+    private int findDirtyCause(ModuleGraph graph, int[] levels, int id) {
+        for (int e = graph.getSuccessorStart(id); e < graph.getSuccessorEnd(id); e++) {
+            int successorId = graph.getSuccessor(e);
+            if (levels[successorId] == levels[id] - 1) {
+                return successorId;
+            }
+        }
+
+        throw new IllegalStateException("No dirty cause found for module: " + graph.getModule(id).getArtifactId());
+    }
+
+    /**
+     * Breadth first search from the seeds over the predecessor edges.
+     *
+     * @return int[] The distance from the nearest seed for each module, -1 if not reached
+     */
+    private int[] propagateDirty(ModuleGraph graph, int[] seeds) {
+        int[] levels = new int[graph.size()];
+        Arrays.fill(levels, -1);
+
+        int[] worklist = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        for (int seed : seeds) {
+            levels[seed] = 0;
+            worklist[tail++] = seed;
+        }
+
+        // Each module enters the worklist at most once
+        while (head < tail) {
+            int dirtyId = worklist[head++];
+
+            for (int e = graph.getPredecessorStart(dirtyId); e < graph.getPredecessorEnd(dirtyId); e++) {
+                int dependentId = graph.getPredecessor(e);
+                if (levels[dependentId] == -1 && !graph.isDirty(dependentId)) {
+                    levels[dependentId] = levels[dirtyId] + 1;
+                    worklist[tail++] = dependentId;
+                }
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Same as {@link #propagateDirty(ModuleGraph, int[])}, but each frontier is expanded in parallel.
+     * Modules are claimed with a compare-and-set on their level, so each one is added to exactly one frontier.
+     */
+    private int[] propagateDirtyParallel(ModuleGraph graph, int[] seeds) {
+        AtomicIntegerArray levels = new AtomicIntegerArray(graph.size());
+        for (int id = 0; id < graph.size(); id++) {
+            levels.set(id, graph.isDirty(id) ? 0 : -1);
+        }
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            int[] frontier = seeds;
+            int level = 0;
+            while (frontier.length > 0) {
+                frontier = forkJoinPool.invoke(new FrontierExpansionTask(graph, levels, frontier, 0, frontier.length, level + 1));
+                level++;
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        int[] result = new int[graph.size()];
+        for (int id = 0; id < result.length; id++) {
+            result[id] = levels.get(id);
+        }
+        return result;
+    }
+
+    private static class FrontierExpansionTask extends RecursiveTask<int[]> {
+
+        private static final int THRESHOLD = 256;
+
+        private final ModuleGraph graph;
+        private final AtomicIntegerArray levels;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int nextLevel;
+
+        FrontierExpansionTask(ModuleGraph graph, AtomicIntegerArray levels, int[] frontier, int from, int to, int nextLevel) {
+            this.graph = graph;
+            this.levels = levels;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.nextLevel = nextLevel;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (this.to - this.from > THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                FrontierExpansionTask left = new FrontierExpansionTask(this.graph, this.levels, this.frontier, this.from, middle, this.nextLevel);
+                FrontierExpansionTask right = new FrontierExpansionTask(this.graph, this.levels, this.frontier, middle, this.to, this.nextLevel);
+                left.fork();
+                int[] rightResult = right.compute();
+                int[] leftResult = left.join();
+
+                int[] result = Arrays.copyOf(leftResult, leftResult.length + rightResult.length);
+                System.arraycopy(rightResult, 0, result, leftResult.length, rightResult.length);
+                return result;
+            }
+
+            int[] next = new int[16];
+            int count = 0;
+            for (int i = this.from; i < this.to; i++) {
+                int dirtyId = this.frontier[i];
+                for (int e = this.graph.getPredecessorStart(dirtyId); e < this.graph.getPredecessorEnd(dirtyId); e++) {
+                    int dependentId = this.graph.getPredecessor(e);
+                    if (this.levels.get(dependentId) == -1 && this.levels.compareAndSet(dependentId, -1, this.nextLevel)) {
+                        if (count == next.length) {
+                            next = Arrays.copyOf(next, count * 2);
+                        }
+                        next[count++] = dependentId;
+                    }
+                }
+            }
+
+            return Arrays.copyOf(next, count);
+        }
+    }
+
+    private boolean markDirtyIfUpstreamArtifactUpdated(MavenModule mavenModule) {
+        if (mavenModule.getParent() instanceof UpdatedUpstreamMavenArtifact) {
+            UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact = (UpdatedUpstreamMavenArtifact) mavenModule.getParent();
+            LOG.info("Marking module {}:{} dirty because upstream parent is dirty: {}:{}.",
+                    mavenModule.getGroupId(), mavenModule.getArtifactId(),
+                    updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId());
+            return true;
+        }
+
+        for (MavenModuleDependency dependency : mavenModule.getDependencies()) {
+            if (dependency.getArtifact() instanceof UpdatedUpstreamMavenArtifact) {
+                UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact = (UpdatedUpstreamMavenArtifact) dependency.getArtifact();
+                LOG.info("Marking module {}:{} dirty because upstream dependency is dirty: {}:{}",
+                        mavenModule.getGroupId(), mavenModule.getArtifactId(),
+                        updatedUpstreamMavenArtifact.getGroupId(), updatedUpstreamMavenArtifact.getArtifactId());
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public void printMavenModulesTree(List<MavenModule> mavenModules, PrintStream printStream) {
         for (MavenModule module : mavenModules) {
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.nonblocking.maven.nonsnapshot.DirtyModuleTracker;
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
+import at.nonblocking.maven.nonsnapshot.model.MavenModule;
+
+/**
+ * Default {@link DirtyModuleTracker} implementation.
+ * <br><br>
+ * Remembers which modules are dirty by themselves (the seeds). Adding a seed only visits the
+ * dependents which are not dirty yet. Removing a seed only visits the modules reachable from it:
+ * They are unmarked and marked again if they still depend on a seed or on a dirty module outside
+ * the affected part of the graph.
+ *
+ * @author Juergen Kofler
+ */
+class DirtyModuleTrackerDefaultImpl implements DirtyModuleTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirtyModuleTrackerDefaultImpl.class);
+
+    private final ModuleGraph graph;
+    private final BitSet seeds;
+    private final Function<MavenModule, String> newVersionFunction;
+
+    private final int[] worklist;
+
+    DirtyModuleTrackerDefaultImpl(ModuleGraph graph, BitSet seeds, Function<MavenModule, String> newVersionFunction) {
+        this.graph = graph;
+        this.seeds = seeds;
+        this.newVersionFunction = newVersionFunction;
+        this.worklist = new int[graph.size()];
+    }
+
+    @Override
+    public List<MavenModule> update(Collection<MavenModule> newlyDirty, Collection<MavenModule> newlyClean) {
+        BitSet touched = new BitSet(this.graph.size());
+
+        if (newlyClean != null) {
+            removeSeeds(newlyClean, touched);
+        }
+        if (newlyDirty != null) {
+            addSeeds(newlyDirty, touched);
+        }
+
+        List<MavenModule> changedModules = new ArrayList<>();
+        for (int id = touched.nextSetBit(0); id >= 0; id = touched.nextSetBit(id + 1)) {
+            MavenModule module = this.graph.getModule(id);
+            boolean dirty = this.graph.isDirty(id);
+            if (module.isDirty() == dirty) {
+                continue;
+            }
+
+            module.setDirty(dirty);
+            if (!dirty) {
+                module.setNewVersion(null);
+            } else if (this.newVersionFunction != null) {
+                module.setNewVersion(this.newVersionFunction.apply(module));
+            }
+            changedModules.add(module);
+        }
+
+        return changedModules;
+    }
+
+    private void addSeeds(Collection<MavenModule> newlyDirty, BitSet touched) {
+        int tail = 0;
+        for (MavenModule module : newlyDirty) {
+            int id = getId(module);
+            this.seeds.set(id);
+            if (!this.graph.isDirty(id)) {
+                this.graph.setDirty(id);
+                touched.set(id);
+                this.worklist[tail++] = id;
+            }
+        }
+
+        markDependentsDirty(tail, null, touched);
+    }
+
+    private void removeSeeds(Collection<MavenModule> newlyClean, BitSet touched) {
+        // All modules reachable from the removed seeds might become clean
+        BitSet affected = new BitSet(this.graph.size());
+        int head = 0;
+        int tail = 0;
+        for (MavenModule module : newlyClean) {
+            int id = getId(module);
+            if (!this.seeds.get(id)) {
+                LOG.debug("Module {}:{} is not dirty by itself, ignoring it.", module.getGroupId(), module.getArtifactId());
+                continue;
+            }
+            this.seeds.clear(id);
+            if (!affected.get(id)) {
+                affected.set(id);
+                this.worklist[tail++] = id;
+            }
+        }
+        while (head < tail) {
+            int id = this.worklist[head++];
+            for (int e = this.graph.getPredecessorStart(id); e < this.graph.getPredecessorEnd(id); e++) {
+                int dependentId = this.graph.getPredecessor(e);
+                if (!affected.get(dependentId)) {
+                    affected.set(dependentId);
+                    this.worklist[tail++] = dependentId;
+                }
+            }
+        }
+
+        for (int id = affected.nextSetBit(0); id >= 0; id = affected.nextSetBit(id + 1)) {
+            this.graph.clearDirty(id);
+        }
+        touched.or(affected);
+
+        // Mark again what is still dirty: seeds and modules depending on a dirty module outside the affected part
+        tail = 0;
+        for (int id = affected.nextSetBit(0); id >= 0; id = affected.nextSetBit(id + 1)) {
+            if (this.seeds.get(id) || hasDirtySuccessorOutside(id, affected)) {
+                this.graph.setDirty(id);
+                this.worklist[tail++] = id;
+            }
+        }
+
+        markDependentsDirty(tail, affected, touched);
+    }
+
+    private boolean hasDirtySuccessorOutside(int id, BitSet affected) {
+        for (int e = this.graph.getSuccessorStart(id); e < this.graph.getSuccessorEnd(id); e++) {
+            int successorId = this.graph.getSuccessor(e);
+            if (!affected.get(successorId) && this.graph.isDirty(successorId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Breadth first search from the first <i>tail</i> entries in the worklist,
+     * restricted to the given modules if <i>restriction</i> is not null.
+     */
+    private void markDependentsDirty(int tail, BitSet restriction, BitSet touched) {
+        int head = 0;
+        while (head < tail) {
+            int dirtyId = this.worklist[head++];
+            for (int e = this.graph.getPredecessorStart(dirtyId); e < this.graph.getPredecessorEnd(dirtyId); e++) {
+                int dependentId = this.graph.getPredecessor(e);
+                if (!this.graph.isDirty(dependentId) && (restriction == null || restriction.get(dependentId))) {
+                    this.graph.setDirty(dependentId);
+                    touched.set(dependentId);
+                    this.worklist[tail++] = dependentId;
+                }
+            }
+        }
+    }
+
+    private int getId(MavenModule module) {
+        int id = this.graph.getId(module);
+        if (id == -1) {
+            throw new NonSnapshotPluginException("Module is not part of the workspace: " + module.getGroupId() + ":" + module.getArtifactId());
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the version metadata (maven-metadata-*.xml) in the local repository.
+ * <br><br>
+ * The metadata files of an artifact are read once and merged, the result is kept for the lifetime of the index.
+ *
+ * @author Juergen Kofler
+ */
+final class LocalRepositoryMetadataIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalRepositoryMetadataIndex.class);
+
+    private static final String METADATA_FILE_PREFIX = "maven-metadata-";
+    private static final String LAST_UPDATED_PATTERN = "yyyyMMddHHmmss";
+
+    private static final LocalMetadata NO_METADATA = new LocalMetadata(Collections.<String>emptyList(), 0);
+
+    private final File localRepositoryDirectory;
+    private final Map<String, LocalMetadata> metadata = new ConcurrentHashMap<>();
+
+    LocalRepositoryMetadataIndex(File localRepositoryDirectory) {
+        this.localRepositoryDirectory = localRepositoryDirectory;
+    }
+
+    File getLocalRepositoryDirectory() {
+        return this.localRepositoryDirectory;
+    }
+
+    /**
+     * @param groupId    String
+     * @param artifactId String
+     * @return LocalMetadata or null if there is no metadata for the artifact in the local repository
+     */
+    LocalMetadata get(String groupId, String artifactId) {
+        LocalMetadata localMetadata = this.metadata.computeIfAbsent(groupId + ":" + artifactId, key -> readMetadata(groupId, artifactId));
+        return localMetadata != NO_METADATA ? localMetadata : null;
+    }
+
+    private LocalMetadata readMetadata(String groupId, String artifactId) {
+        File artifactDirectory = new File(this.localRepositoryDirectory, groupId.replace('.', File.separatorChar) + File.separator + artifactId);
+        File[] metadataFiles = artifactDirectory.listFiles((dir, name) -> name.startsWith(METADATA_FILE_PREFIX) && name.endsWith(".xml"));
+        if (metadataFiles == null || metadataFiles.length == 0) {
+            return NO_METADATA;
+        }
+
+        Set<String> versions = new LinkedHashSet<>();
+        long lastUpdated = 0;
+
+        MetadataXpp3Reader reader = new MetadataXpp3Reader();
+        for (File metadataFile : metadataFiles) {
+            try (InputStream inputStream = new FileInputStream(metadataFile)) {
+                Metadata fileMetadata = reader.read(inputStream, false);
+                if (fileMetadata.getVersioning() == null) {
+                    continue;
+                }
+                versions.addAll(fileMetadata.getVersioning().getVersions());
+                lastUpdated = Math.max(lastUpdated, parseLastUpdated(fileMetadata.getVersioning().getLastUpdated(), metadataFile));
+
+            } catch (IOException | XmlPullParserException e) {
+                LOG.warn("Ignoring invalid metadata file: {}", metadataFile.getAbsolutePath(), e);
+            }
+        }
+
+        if (versions.isEmpty()) {
+            return NO_METADATA;
+        }
+
+        LOG.debug("Found {} versions of {}:{} in the local repository", versions.size(), groupId, artifactId);
+        return new LocalMetadata(new ArrayList<>(versions), lastUpdated);
+    }
+
+    private long parseLastUpdated(String lastUpdated, File metadataFile) {
+        if (lastUpdated != null) {
+            try {
+                SimpleDateFormat dateFormat = new SimpleDateFormat(LAST_UPDATED_PATTERN);
+                dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return dateFormat.parse(lastUpdated).getTime();
+            } catch (ParseException e) {
+                LOG.debug("Invalid lastUpdated in metadata file {}: {}", metadataFile.getAbsolutePath(), lastUpdated);
+            }
+        }
+        return metadataFile.lastModified();
+    }
+
+    /**
+     * The merged versions of an artifact and the time of the latest update.
+     */
+    static final class LocalMetadata {
+
+        private final List<String> versions;
+        private final long lastUpdated;
+
+        private LocalMetadata(List<String> versions, long lastUpdated) {
+            this.versions = versions;
+            this.lastUpdated = lastUpdated;
+        }
+
+        List<String> getVersions() {
+            return this.versions;
+        }
+
+        long getLastUpdated() {
+            return this.lastUpdated;
+        }
+    }
+
+}
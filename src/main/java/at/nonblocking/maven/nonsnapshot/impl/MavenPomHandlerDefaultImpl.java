@@ -15,16 +15,20 @@
  */
 package at.nonblocking.maven.nonsnapshot.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import at.nonblocking.maven.nonsnapshot.model.UpdatedUpstreamMavenArtifact;
 import org.apache.maven.model.Dependency;
@@ -36,8 +40,8 @@ import org.apache.maven.model.Plugin;
 import org.apache.maven.model.Profile;
 import org.apache.maven.model.io.xpp3.MavenXpp3ReaderEx;
 import org.codehaus.plexus.component.annotations.Component;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.XmlStreamReader;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,19 +51,25 @@ import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import at.nonblocking.maven.nonsnapshot.model.MavenModule;
 import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+import at.nonblocking.maven.nonsnapshot.model.MavenModuleProperty;
 
 /**
  * Default implementation of {@link MavenPomHandler}
+ * <br/>
+ * All coordinate strings read by one instance are interned: Equal groupId/artifactId/version strings are the same
+ * instance. Each dependency still gets its own {@link MavenArtifact}, since artifacts are mutable.
  *
  * @author Juergen Kofler
  */
-@Component(role = MavenPomHandler.class, hint = "default")
+@Component(role = MavenPomHandler.class, hint = "default", instantiationStrategy = "per-lookup")
 public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(MavenPomHandlerDefaultImpl.class);
 
     private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
+    private final ConcurrentMap<String, String> stringTable = new ConcurrentHashMap<>();
+
     @Override
     public MavenModule readArtifact(File pomFile) {
         LOG.debug("Loading POM file: {}", pomFile.getAbsolutePath());
@@ -101,35 +111,37 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
             }
         }
 
-        MavenModule mavenModule = new MavenModule(pomFile, groupId, model.getArtifactId(), version);
+        MavenModule mavenModule = new MavenModule(pomFile, intern(groupId), intern(model.getArtifactId()), intern(version));
         mavenModule.setInsertVersionTag(insertVersionTag);
         mavenModule.setVersionLocation(getVersionLocation(model));
+        mavenModule.setVersionColumn(getVersionColumn(model));
 
         // Parent
         if (model.getParent() != null) {
-            mavenModule.setParent(new MavenArtifact(model.getParent().getGroupId(),
+            mavenModule.setParent(createArtifact(model.getParent().getGroupId(),
                     model.getParent().getArtifactId(), model.getParent().getVersion()));
             mavenModule.setParentVersionLocation(getVersionLocation(model.getParent()));
+            mavenModule.setParentVersionColumn(getVersionColumn(model.getParent()));
         }
 
         // Dependencies
         for (Dependency dependency : model.getDependencies()) {
             mavenModule.getDependencies().add(new MavenModuleDependency(
-                    getVersionLocation(dependency),
-                    new MavenArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
+                    getVersionLocation(dependency), getVersionColumn(dependency),
+                    createArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
         }
 
         // Plugins
         if (model.getBuild() != null) {
             for (Plugin plugin : model.getBuild().getPlugins()) {
                 mavenModule.getDependencies().add(new MavenModuleDependency(
-                        getVersionLocation(plugin),
-                        new MavenArtifact(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion())));
+                        getVersionLocation(plugin), getVersionColumn(plugin),
+                        createArtifact(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion())));
 
                 for (Dependency dependency : plugin.getDependencies()) {
                     mavenModule.getDependencies().add(new MavenModuleDependency(
-                            getVersionLocation(dependency),
-                            new MavenArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
+                            getVersionLocation(dependency), getVersionColumn(dependency),
+                            createArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
                 }
             }
         }
@@ -138,8 +150,8 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
         for (Profile profile : model.getProfiles()) {
             for (Dependency dependency : profile.getDependencies()) {
                 mavenModule.getDependencies().add(new MavenModuleDependency(
-                        getVersionLocation(dependency),
-                        new MavenArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
+                        getVersionLocation(dependency), getVersionColumn(dependency),
+                        createArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
             }
         }
 
@@ -148,22 +160,47 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
             if (profile.getBuild() != null) {
                 for (Plugin plugin : profile.getBuild().getPlugins()) {
                     mavenModule.getDependencies().add(new MavenModuleDependency(
-                            getVersionLocation(plugin),
-                            new MavenArtifact(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion())));
+                            getVersionLocation(plugin), getVersionColumn(plugin),
+                            createArtifact(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion())));
 
 
                     for (Dependency dependency : plugin.getDependencies()) {
                         mavenModule.getDependencies().add(new MavenModuleDependency(
-                                getVersionLocation(dependency),
-                                new MavenArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
+                                getVersionLocation(dependency), getVersionColumn(dependency),
+                                createArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
                     }
                 }
             }
         }
 
+        // Properties
+        InputLocation propertiesLocation = model.getLocation("properties");
+        if (propertiesLocation != null) {
+            for (String name : model.getProperties().stringPropertyNames()) {
+                InputLocation location = propertiesLocation.getLocation(name);
+                if (location != null) {
+                    mavenModule.getProperties().put(intern(name),
+                            new MavenModuleProperty(intern(name), intern(model.getProperties().getProperty(name)), location.getLineNumber(), location.getColumnNumber()));
+                }
+            }
+        }
+
         return mavenModule;
     }
 
+    private MavenArtifact createArtifact(String groupId, String artifactId, String version) {
+        return new MavenArtifact(intern(groupId), intern(artifactId), intern(version));
+    }
+
+    private String intern(String str) {
+        if (str == null) {
+            return null;
+        }
+
+        String interned = this.stringTable.putIfAbsent(str, str);
+        return interned != null ? interned : str;
+    }
+
     private int getVersionLocation(InputLocationTracker tracker) {
         InputLocation location = tracker.getLocation("version");
         if (location == null) {
@@ -173,6 +210,14 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
         return location.getLineNumber();
     }
 
+    /**
+     * @return int The column right after the version start tag or 0 if there is no version tag
+     */
+    private int getVersionColumn(InputLocationTracker tracker) {
+        InputLocation location = tracker.getLocation("version");
+        return location != null ? location.getColumnNumber() : 0;
+    }
+
     @Override
     public void updateArtifact(MavenModule mavenModule) {
         if (!mavenModule.isDirty()) {
@@ -181,28 +226,34 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
 
         List<PomUpdateCommand> commands = new ArrayList<>();
 
-        addUpdateCommand(mavenModule, mavenModule.getVersionLocation(), false, commands);
+        addUpdateCommand(mavenModule, mavenModule.getVersionLocation(), mavenModule.getVersionColumn(), false, commands);
 
         if (mavenModule.getParent() != null) {
             if (mavenModule.getParent() instanceof MavenModule) {
-                addUpdateCommand((MavenModule) mavenModule.getParent(), mavenModule.getParentVersionLocation(), true, commands);
+                addUpdateCommand((MavenModule) mavenModule.getParent(), mavenModule.getParentVersionLocation(), mavenModule.getParentVersionColumn(), true, commands);
             } else if (mavenModule.getParent() instanceof UpdatedUpstreamMavenArtifact) {
-                addUpdateCommand((UpdatedUpstreamMavenArtifact) mavenModule.getParent(), mavenModule.getParentVersionLocation(), commands);
+                addUpdateCommand((UpdatedUpstreamMavenArtifact) mavenModule.getParent(), mavenModule.getParentVersionLocation(), mavenModule.getParentVersionColumn(), commands);
             }
         }
 
         for (MavenModuleDependency dependency : mavenModule.getDependencies()) {
             if (dependency.getArtifact() instanceof MavenModule) {
-                addUpdateCommand((MavenModule) dependency.getArtifact(), dependency.getVersionLocation(), true, commands);
+                addUpdateCommand((MavenModule) dependency.getArtifact(), dependency.getVersionLocation(), dependency.getVersionColumn(), true, commands);
             } else if (dependency.getArtifact() instanceof UpdatedUpstreamMavenArtifact) {
-                addUpdateCommand((UpdatedUpstreamMavenArtifact) dependency.getArtifact(), dependency.getVersionLocation(), commands);
+                addUpdateCommand((UpdatedUpstreamMavenArtifact) dependency.getArtifact(), dependency.getVersionLocation(), dependency.getVersionColumn(), commands);
+            }
+        }
+
+        for (MavenModuleProperty property : mavenModule.getProperties().values()) {
+            if (property.getNewValue() != null) {
+                commands.add(new PomUpdateCommand(property.getLocation(), property.getColumn(), UPDATE_COMMAND_TYPE.REPLACE, property.getName(), property.getNewValue()));
             }
         }
 
         executeUpdateCommands(commands, mavenModule.getPomFile());
     }
 
-    private void addUpdateCommand(MavenModule mavenModule, Integer lineNumber, boolean dependency, List<PomUpdateCommand> commands) {
+    private void addUpdateCommand(MavenModule mavenModule, int lineNumber, int columnNumber, boolean dependency, List<PomUpdateCommand> commands) {
         if (!mavenModule.isDirty()) {
             return;
         }
@@ -211,82 +262,194 @@ public class MavenPomHandlerDefaultImpl implements MavenPomHandler {
             return;
         }
 
-        if (!dependency && mavenModule.isInsertVersionTag()) {
-            commands.add(new PomUpdateCommand(lineNumber, UPDATE_COMMAND_TYPE.INSERT, "<version>" + mavenModule.getNewVersion() + "</version>", null));
+        if (mavenModule.getVersionProperty() != null) {
+            // The version is set in the version properties file, only literal references need an update
+            if (dependency) {
+                commands.add(new PomUpdateCommand(lineNumber, columnNumber, UPDATE_COMMAND_TYPE.REPLACE_LITERAL, "version", mavenModule.getNewVersion()));
+            }
+        } else if (!dependency && mavenModule.isInsertVersionTag()) {
+            commands.add(new PomUpdateCommand(lineNumber, 0, UPDATE_COMMAND_TYPE.INSERT, "version", mavenModule.getNewVersion()));
         } else {
-            commands.add(new PomUpdateCommand(lineNumber, UPDATE_COMMAND_TYPE.REPLACE, "<version>.*?</version>", "<version>" + mavenModule.getNewVersion() + "</version>"));
+            commands.add(new PomUpdateCommand(lineNumber, columnNumber, UPDATE_COMMAND_TYPE.REPLACE, "version", mavenModule.getNewVersion()));
         }
     }
 
-    private void addUpdateCommand(UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact, Integer lineNumber, List<PomUpdateCommand> commands) {
-        commands.add(new PomUpdateCommand(lineNumber, UPDATE_COMMAND_TYPE.REPLACE, "<version>.*?</version>", "<version>" + updatedUpstreamMavenArtifact.getNewVersion() + "</version>"));
+    private void addUpdateCommand(UpdatedUpstreamMavenArtifact updatedUpstreamMavenArtifact, int lineNumber, int columnNumber, List<PomUpdateCommand> commands) {
+        commands.add(new PomUpdateCommand(lineNumber, columnNumber, UPDATE_COMMAND_TYPE.REPLACE, "version", updatedUpstreamMavenArtifact.getNewVersion()));
     }
 
+    /**
+     * Apply all commands in a single pass over the POM content, in its original encoding and with its original
+     * line separators, and replace the POM atomically by a file written next to it.
+     */
     private void executeUpdateCommands(List<PomUpdateCommand> commands, File pomFile) {
-        Map<Integer, PomUpdateCommand> commandMap = new HashMap<>();
-
-        for (PomUpdateCommand command : commands) {
-            commandMap.put(command.lineNumber, command);
+        if (commands.isEmpty()) {
+            return;
         }
 
+        Collections.sort(commands);
+
+        Path pomPath = pomFile.toPath();
+
         try {
-            LineNumberReader reader = new LineNumberReader(new FileReader(pomFile));
-            File tempTarget = File.createTempFile("pom", ".xml");
-            PrintWriter writer = new PrintWriter(tempTarget);
+            byte[] pomBytes = Files.readAllBytes(pomPath);
+            Charset charset;
+            try (XmlStreamReader xmlReader = ReaderFactory.newXmlReader(new ByteArrayInputStream(pomBytes))) {
+                charset = Charset.forName(xmlReader.getEncoding());
+            }
+
+            String content = new String(pomBytes, charset);
+            String lineSeparator = getLineSeparator(content);
+            StringBuilder result = new StringBuilder(content.length() + 64 * commands.size());
+
+            int lineNumber = 1;
+            int lineStart = 0;
+            int copied = 0;
+
+            for (PomUpdateCommand command : commands) {
+                while (lineNumber < command.lineNumber && lineStart >= 0) {
+                    int newLine = content.indexOf('\n', lineStart);
+                    lineStart = newLine >= 0 ? newLine + 1 : -1;
+                    lineNumber++;
+                }
+                if (lineStart < 0) {
+                    LOG.warn("Invalid line number {} in POM file: {}", command.lineNumber, pomFile.getAbsolutePath());
+                    continue;
+                }
 
-            LOG.debug("Writing temporary POM file to: {}", tempTarget.getAbsoluteFile());
+                int lineEnd = getLineEnd(content, lineStart);
+
+                if (command.commandType == UPDATE_COMMAND_TYPE.INSERT) {
+                    // Sorted after all replacements in the same line, so copied <= lineEnd
+                    LOG.debug("Inserting '<{}>{}</{}>' in line number: {}", command.element, command.value, command.element, command.lineNumber);
+                    result.append(content, copied, lineEnd)
+                            .append(lineSeparator)
+                            .append(content, lineStart, getIndentationEnd(content, lineStart, lineEnd))
+                            .append('<').append(command.element).append('>').append(command.value).append("</").append(command.element).append('>');
+                    copied = lineEnd;
+                    continue;
+                }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                PomUpdateCommand command = commandMap.get(reader.getLineNumber());
-                if (command != null) {
-                    line = executeCommand(line, command);
+                int valueStart = findValueStart(content, lineStart, lineEnd, command);
+                if (valueStart < copied) {
+                    LOG.warn("Element {} not found in line number {} of POM file: {}", command.element, command.lineNumber, pomFile.getAbsolutePath());
+                    continue;
+                }
+                int valueEnd = content.indexOf('<', valueStart);
+                if (valueEnd < 0) {
+                    valueEnd = valueStart;
                 }
 
-                writer.write(line + LINE_SEPARATOR);
+                if (command.commandType == UPDATE_COMMAND_TYPE.REPLACE_LITERAL && content.substring(valueStart, valueEnd).contains("${")) {
+                    continue;
+                }
+
+                LOG.debug("Replacing '{}' with '{}' in line number: {}", content.substring(valueStart, valueEnd), command.value, command.lineNumber);
+                result.append(content, copied, valueStart).append(command.value);
+                copied = valueEnd;
             }
 
-            reader.close();
-            writer.close();
+            result.append(content, copied, content.length());
+
+            Path tempTarget = pomPath.resolveSibling("." + pomPath.getFileName() + ".nonsnapshot");
+            LOG.debug("Writing temporary POM file to: {}", tempTarget.toAbsolutePath());
+            Files.write(tempTarget, result.toString().getBytes(charset));
+            copyPermissions(pomPath, tempTarget);
 
-            LOG.debug("Copy temporary POM file to: {}", pomFile.getAbsoluteFile());
-            IOUtil.copy(new FileReader(tempTarget), new FileOutputStream(pomFile));
-            tempTarget.delete();
+            LOG.debug("Moving temporary POM file to: {}", pomFile.getAbsoluteFile());
+            try {
+                Files.move(tempTarget, pomPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempTarget, pomPath, StandardCopyOption.REPLACE_EXISTING);
+            }
 
         } catch (IOException e) {
             throw new NonSnapshotPluginException("Failed to updated POM file: " + pomFile.getAbsolutePath(), e);
         }
     }
 
-    private String executeCommand(String line, PomUpdateCommand command) {
-        switch (command.commandType) {
-            case REPLACE:
-                LOG.debug("Replacing '{}' with '{}' in line number: {}", command.text1, command.text2, command.lineNumber);
-                return line.replaceAll(command.text1, command.text2);
-            case INSERT:
-                LOG.debug("Inserting '{}' in line number: {}", new Object[]{command.text1, command.lineNumber});
-                return line + LINE_SEPARATOR + command.text1;
+    /**
+     * @return int The position right after the start tag of the command's element, or -1 if not found in the line
+     */
+    private int findValueStart(String content, int lineStart, int lineEnd, PomUpdateCommand command) {
+        String startTag = "<" + command.element + ">";
+
+        if (command.columnNumber > 0) {
+            int position = lineStart + command.columnNumber - 1;
+            if (position <= lineEnd && content.startsWith(startTag, position - startTag.length())) {
+                return position;
+            }
+        }
+
+        int startTagPosition = content.indexOf(startTag, lineStart);
+        if (startTagPosition >= 0 && startTagPosition < lineEnd) {
+            return startTagPosition + startTag.length();
         }
 
-        return line;
+        return -1;
+    }
+
+    private int getLineEnd(String content, int lineStart) {
+        int lineEnd = content.indexOf('\n', lineStart);
+        if (lineEnd < 0) {
+            return content.length();
+        }
+        return lineEnd > lineStart && content.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private int getIndentationEnd(String content, int lineStart, int lineEnd) {
+        int position = lineStart;
+        while (position < lineEnd && Character.isWhitespace(content.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private String getLineSeparator(String content) {
+        int newLine = content.indexOf('\n');
+        if (newLine < 0) {
+            return LINE_SEPARATOR;
+        }
+        return newLine > 0 && content.charAt(newLine - 1) == '\r' ? "\r\n" : "\n";
+    }
+
+    private void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceAttributes = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (sourceAttributes != null) {
+            Files.setPosixFilePermissions(target, sourceAttributes.readAttributes().permissions());
+        }
     }
 
     private enum UPDATE_COMMAND_TYPE {
-        INSERT, REPLACE
+        INSERT, REPLACE, REPLACE_LITERAL
     }
 
-    private static class PomUpdateCommand {
+    private static class PomUpdateCommand implements Comparable<PomUpdateCommand> {
 
         int lineNumber;
+        int columnNumber;
         UPDATE_COMMAND_TYPE commandType;
-        String text1;
-        String text2;
+        String element;
+        String value;
 
-        PomUpdateCommand(int lineNumber, UPDATE_COMMAND_TYPE commandType, String text1, String text2) {
+        PomUpdateCommand(int lineNumber, int columnNumber, UPDATE_COMMAND_TYPE commandType, String element, String value) {
             this.lineNumber = lineNumber;
+            this.columnNumber = columnNumber;
             this.commandType = commandType;
-            this.text1 = text1;
-            this.text2 = text2;
+            this.element = element;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(PomUpdateCommand other) {
+            if (this.lineNumber != other.lineNumber) {
+                return Integer.compare(this.lineNumber, other.lineNumber);
+            }
+            // An insert goes after the end of the line
+            if (this.commandType == UPDATE_COMMAND_TYPE.INSERT || other.commandType == UPDATE_COMMAND_TYPE.INSERT) {
+                return Boolean.compare(this.commandType == UPDATE_COMMAND_TYPE.INSERT, other.commandType == UPDATE_COMMAND_TYPE.INSERT);
+            }
+            return Integer.compare(this.columnNumber, other.columnNumber);
         }
 
     }
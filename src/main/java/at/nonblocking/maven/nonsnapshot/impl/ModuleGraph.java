@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot.impl;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.nonblocking.maven.nonsnapshot.model.MavenModule;
+import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+
+/**
+ * Compact graph of the workspace modules for the processing phase.
+ * <br><br>
+ * Each module gets an integer id (its position in the workspace list). The edges are stored in
+ * compressed sparse row form: The successors of module i (parent first, then the workspace dependencies
+ * in declaration order) are <i>successorTargets[successorOffsets[i] .. successorOffsets[i + 1] - 1]</i>,
+ * the predecessors (children and dependents in workspace order) are stored the same way.
+ * <br><br>
+ * The {@link MavenModule} instances stay the public view, the dirty state is kept in a {@link BitSet}
+ * and written back with {@link #applyDirtyState()}.
+ *
+ * @author Juergen Kofler
+ */
+final class ModuleGraph {
+
+    private final List<MavenModule> modules;
+    private final Map<MavenModule, Integer> ids;
+
+    private final int[] parents;
+
+    private final int[] successorOffsets;
+    private final int[] successorTargets;
+
+    private final int[] predecessorOffsets;
+    private final int[] predecessorTargets;
+
+    private final BitSet dirty;
+
+    ModuleGraph(List<MavenModule> modules) {
+        this.modules = modules;
+
+        int moduleCount = modules.size();
+        this.ids = new IdentityHashMap<>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            this.ids.put(modules.get(i), i);
+        }
+
+        this.parents = new int[moduleCount];
+        this.successorOffsets = new int[moduleCount + 1];
+        this.dirty = new BitSet(moduleCount);
+
+        int[] targets = new int[Math.max(16, moduleCount * 4)];
+        int edgeCount = 0;
+
+        for (int i = 0; i < moduleCount; i++) {
+            MavenModule module = modules.get(i);
+            this.successorOffsets[i] = edgeCount;
+            if (module.isDirty()) {
+                this.dirty.set(i);
+            }
+
+            Integer parentId = this.ids.get(module.getParent());
+            this.parents[i] = parentId != null ? parentId : -1;
+            if (parentId != null) {
+                targets = ensureCapacity(targets, edgeCount + 1);
+                targets[edgeCount++] = parentId;
+            }
+
+            for (MavenModuleDependency dependency : module.getDependencies()) {
+                Integer dependencyId = this.ids.get(dependency.getArtifact());
+                if (dependencyId != null) {
+                    targets = ensureCapacity(targets, edgeCount + 1);
+                    targets[edgeCount++] = dependencyId;
+                }
+            }
+        }
+        this.successorOffsets[moduleCount] = edgeCount;
+        this.successorTargets = new int[edgeCount];
+        System.arraycopy(targets, 0, this.successorTargets, 0, edgeCount);
+
+        // Reverse edges by counting sort, so the predecessors of each module are in workspace order
+        this.predecessorOffsets = new int[moduleCount + 1];
+        for (int target : this.successorTargets) {
+            this.predecessorOffsets[target + 1]++;
+        }
+        for (int i = 0; i < moduleCount; i++) {
+            this.predecessorOffsets[i + 1] += this.predecessorOffsets[i];
+        }
+        this.predecessorTargets = new int[edgeCount];
+        int[] fill = new int[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            for (int e = this.successorOffsets[i]; e < this.successorOffsets[i + 1]; e++) {
+                int target = this.successorTargets[e];
+                this.predecessorTargets[this.predecessorOffsets[target] + fill[target]++] = i;
+            }
+        }
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        if (size <= array.length) {
+            return array;
+        }
+        int[] newArray = new int[Math.max(size, array.length * 2)];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    int size() {
+        return this.modules.size();
+    }
+
+    MavenModule getModule(int id) {
+        return this.modules.get(id);
+    }
+
+    /**
+     * @param id int
+     * @return int The id of the parent module or -1 if the parent is not in the workspace
+     */
+    int getParent(int id) {
+        return this.parents[id];
+    }
+
+    int getSuccessorStart(int id) {
+        return this.successorOffsets[id];
+    }
+
+    int getSuccessorEnd(int id) {
+        return this.successorOffsets[id + 1];
+    }
+
+    int getSuccessor(int edge) {
+        return this.successorTargets[edge];
+    }
+
+    int getPredecessorStart(int id) {
+        return this.predecessorOffsets[id];
+    }
+
+    int getPredecessorEnd(int id) {
+        return this.predecessorOffsets[id + 1];
+    }
+
+    int getPredecessor(int edge) {
+        return this.predecessorTargets[edge];
+    }
+
+    boolean hasSuccessor(int id, int successorId) {
+        for (int e = getSuccessorStart(id); e < getSuccessorEnd(id); e++) {
+            if (this.successorTargets[e] == successorId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isDirty(int id) {
+        return this.dirty.get(id);
+    }
+
+    void setDirty(int id) {
+        this.dirty.set(id);
+    }
+
+    void clearDirty(int id) {
+        this.dirty.clear(id);
+    }
+
+    /**
+     * @param module MavenModule
+     * @return int The id of given module or -1 if it is not part of the graph
+     */
+    int getId(MavenModule module) {
+        Integer id = this.ids.get(module);
+        return id != null ? id : -1;
+    }
+
+    BitSet getDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Write the dirty state back to the {@link MavenModule} views.
+     */
+    void applyDirtyState() {
+        for (int id = this.dirty.nextSetBit(0); id >= 0; id = this.dirty.nextSetBit(id + 1)) {
+            this.modules.get(id).setDirty(true);
+        }
+    }
+
+}
@@ -31,7 +31,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Default implementation of a module traverser.
@@ -43,55 +54,269 @@ public class ModuleTraverserDefaultImpl implements ModuleTraverser {
 
     private static final Logger LOG = LoggerFactory.getLogger(ModuleTraverserDefaultImpl.class);
 
+    private static final Set<String> SKIPPED_DIRECTORIES = new HashSet<>(Arrays.asList("target", "node_modules", "bower_components"));
+
     @Override
     public List<Model> findAllModules(MavenProject baseProject, List<Profile> activeProfiles) {
-        LOG.info("Scanning for Maven modules... Active profiles: {}", activeProfiles);
-
         List<Model> modelList = new ArrayList<>();
-        recursiveFindModules(baseProject.getBasedir(), modelList, activeProfiles);
+        findAllModules(baseProject, activeProfiles, null, modelList::add);
         return modelList;
     }
 
-    private void recursiveFindModules(File baseDir, List<Model> modelList, List<Profile> activeProfiles) {
-        MavenXpp3ReaderEx reader = new MavenXpp3ReaderEx();
-        File pom = new File(baseDir, "pom.xml");
+    @Override
+    public void findAllModules(MavenProject baseProject, List<Profile> activeProfiles, List<MavenProject> reactorProjects, Consumer<Model> modelConsumer) {
+        LOG.info("Scanning for Maven modules... Active profiles: {}", activeProfiles);
+
+        TraversalContext context = new TraversalContext(modelConsumer, activeProfiles, createReactorProjectMap(reactorProjects));
+
+        recursiveFindModules(baseProject.getBasedir(), context);
+    }
+
+    private Map<File, MavenProject> createReactorProjectMap(List<MavenProject> reactorProjects) {
+        if (reactorProjects == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<File, MavenProject> reactorProjectMap = new HashMap<>();
+        for (MavenProject reactorProject : reactorProjects) {
+            if (reactorProject.getBasedir() != null && reactorProject.getOriginalModel() != null) {
+                reactorProjectMap.put(toCanonicalFile(reactorProject.getBasedir()), reactorProject);
+            }
+        }
+
+        return reactorProjectMap;
+    }
+
+    private void recursiveFindModules(File baseDir, TraversalContext context) {
+        File moduleDir = toCanonicalFile(baseDir);
+        if (!context.visitedModuleDirs.add(moduleDir)) {
+            LOG.debug("Skipping already visited maven module: {}", moduleDir.getAbsolutePath());
+            return;
+        }
+
+        Set<String> modulePaths = consumeModel(moduleDir, context);
+
+        for (String modulePath : modulePaths) {
+            recursiveFindModules(new File(moduleDir, modulePath), context);
+        }
+    }
 
-        Model model;
+    /**
+     * Load and consume the model of given module directory and return its module paths.
+     * The model itself doesn't survive this method, so it doesn't stay on the heap while the sub modules are processed.
+     */
+    private Set<String> consumeModel(File moduleDir, TraversalContext context) {
+        Model model = loadModel(moduleDir, context.reactorProjectMap);
+
+        Set<String> modulePaths = new LinkedHashSet<>(model.getModules());
+
+        if (context.activeProfiles != null && !context.activeProfiles.isEmpty() && !model.getProfiles().isEmpty()) {
+            Map<String, Profile> profiles = new HashMap<>();
+            for (Profile profile : model.getProfiles()) {
+                profiles.put(profile.getId(), profile);
+            }
+
+            for (Profile activeProfile : context.activeProfiles) {
+                Profile profile = profiles.get(activeProfile.getId());
+                if (profile != null) {
+                    modulePaths.addAll(profile.getModules());
+                }
+            }
+        }
+
+        context.modelConsumer.accept(model);
+
+        return modulePaths;
+    }
+
+    private Model loadModel(File moduleDir, Map<File, MavenProject> reactorProjectMap) {
+        File pom = new File(moduleDir, "pom.xml");
+
+        MavenProject reactorProject = reactorProjectMap.get(moduleDir);
+        if (reactorProject != null) {
+            Model model = reactorProject.getOriginalModel();
+            // Only usable if the project builder tracked the input locations, otherwise we cannot rewrite the POM
+            if (model.getLocation("artifactId") != null) {
+                if (model.getPomFile() == null) {
+                    model.setPomFile(pom);
+                }
+                LOG.debug("Found maven module in reactor: {}", pom.getParentFile().getAbsolutePath());
+                return model;
+            }
+        }
+
+        return readModel(pom);
+    }
+
+    private Model readModel(File pom) {
+        MavenXpp3ReaderEx reader = new MavenXpp3ReaderEx();
 
         try (XmlStreamReader xmlStreamReader = ReaderFactory.newXmlReader(pom)) {
             InputSource is = new InputSource();
-            model = reader.read(xmlStreamReader, false, is);
+            Model model = reader.read(xmlStreamReader, false, is);
             model.setPomFile(pom);
             LOG.debug("Found maven module: {}", pom.getParentFile().getAbsolutePath());
+            return model;
 
         } catch (IOException | XmlPullParserException e) {
             throw new NonSnapshotPluginException("Failed to load POM: " + pom.getAbsolutePath(), e);
         }
+    }
 
-        modelList.add(model);
+    @Override
+    public <T> void scanForModules(File baseDir, List<String> includes, List<String> excludes,
+                                   Function<Model, T> modelConverter, Consumer<T> moduleConsumer) {
+        LOG.info("Scanning file system for Maven modules... Includes: {}, excludes: {}", includes, excludes);
 
-        Set<String> modulePaths = new LinkedHashSet<>(model.getModules());
+        ScanContext<T> context = new ScanContext<>(toCanonicalFile(baseDir).toPath(), createPathMatchers(includes), createPathMatchers(excludes), modelConverter);
 
-        if (activeProfiles != null) {
-            for (Profile activeProfile : activeProfiles) {
-                modulePaths.addAll(getProfileModules(model, activeProfile));
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.invoke(new ScanTask<>(context.baseDir, context));
+        } finally {
+            pool.shutdown();
+        }
+
+        LOG.debug("Found {} maven modules", context.modules.size());
+
+        Map.Entry<String, T> entry;
+        while ((entry = context.modules.pollFirstEntry()) != null) {
+            moduleConsumer.accept(entry.getValue());
+        }
+    }
+
+    private List<PathMatcher> createPathMatchers(List<String> globs) {
+        if (globs == null) {
+            return Collections.emptyList();
+        }
+
+        List<PathMatcher> pathMatchers = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+
+        return pathMatchers;
+    }
+
+    private File toCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            throw new NonSnapshotPluginException(e.getMessage(), e);
+        }
+    }
+
+    private static class TraversalContext {
+
+        final Consumer<Model> modelConsumer;
+        final List<Profile> activeProfiles;
+        final Map<File, MavenProject> reactorProjectMap;
+        final Set<File> visitedModuleDirs = new HashSet<>();
+
+        TraversalContext(Consumer<Model> modelConsumer, List<Profile> activeProfiles, Map<File, MavenProject> reactorProjectMap) {
+            this.modelConsumer = modelConsumer;
+            this.activeProfiles = activeProfiles;
+            this.reactorProjectMap = reactorProjectMap;
+        }
+
+    }
+
+    private static class ScanContext<T> {
+
+        final Path baseDir;
+        final List<PathMatcher> includes;
+        final List<PathMatcher> excludes;
+        final Function<Model, T> modelConverter;
+        final ConcurrentSkipListMap<String, T> modules = new ConcurrentSkipListMap<>();
+
+        ScanContext(Path baseDir, List<PathMatcher> includes, List<PathMatcher> excludes, Function<Model, T> modelConverter) {
+            this.baseDir = baseDir;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.modelConverter = modelConverter;
+        }
+
+        boolean isIncluded(Path relativeDir) {
+            if (this.includes.isEmpty()) {
+                return true;
             }
+            return matches(this.includes, relativeDir);
         }
 
-        for (String modulePath : modulePaths) {
-            File moduleDir = new File(baseDir, modulePath);
-            recursiveFindModules(moduleDir, modelList, activeProfiles);
+        boolean isExcluded(Path relativeDir) {
+            return matches(this.excludes, relativeDir);
+        }
+
+        private boolean matches(List<PathMatcher> pathMatchers, Path relativeDir) {
+            for (PathMatcher pathMatcher : pathMatchers) {
+                if (pathMatcher.matches(relativeDir)) {
+                    return true;
+                }
+            }
+            return false;
         }
+
     }
 
-    private List<String> getProfileModules(Model model, Profile activeProfile) {
-        for (Profile profile : model.getProfiles()) {
-            if (profile.getId().equals(activeProfile.getId())) {
-                return profile.getModules();
+    /**
+     * Scans a single directory. Sub directories are forked right away, so the POM of this directory
+     * gets parsed and converted while the rest of the tree is still being walked. Only the converted
+     * module is kept until the walk is finished, the model is dropped right away.
+     */
+    private class ScanTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final ScanContext<T> context;
+
+        ScanTask(Path dir, ScanContext<T> context) {
+            this.dir = dir;
+            this.context = context;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask<T>> subTasks = new ArrayList<>();
+            Path pom = null;
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.dir)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        if (!isSkippedDirectory(entry)) {
+                            subTasks.add(new ScanTask<>(entry, this.context));
+                        }
+                    } else if ("pom.xml".equals(entry.getFileName().toString())) {
+                        pom = entry;
+                    }
+                }
+            } catch (IOException e) {
+                throw new NonSnapshotPluginException("Failed to scan directory: " + this.dir, e);
+            }
+
+            for (ScanTask<T> subTask : subTasks) {
+                subTask.fork();
+            }
+
+            Path relativeDir = this.context.baseDir.relativize(this.dir);
+            if (pom != null && this.context.isIncluded(relativeDir)) {
+                T module = this.context.modelConverter.apply(readModel(pom.toFile()));
+                this.context.modules.put(relativeDir.toString().replace('\\', '/'), module);
+            }
+
+            for (ScanTask<T> subTask : subTasks) {
+                subTask.join();
+            }
+        }
+
+        private boolean isSkippedDirectory(Path dir) {
+            String name = dir.getFileName().toString();
+            if (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name)) {
+                return true;
             }
+            return this.context.isExcluded(this.context.baseDir.relativize(dir));
         }
 
-        return Collections.emptyList();
     }
 
 }
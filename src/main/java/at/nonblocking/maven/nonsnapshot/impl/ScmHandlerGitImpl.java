@@ -31,6 +31,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -66,16 +69,18 @@ public class ScmHandlerGitImpl implements ScmHandler {
 
     @Override
     public Date getLastCommitDate(File path) {
+        return getLastCommitDate(Collections.singletonList(path));
+    }
+
+    @Override
+    public Date getLastCommitDate(List<File> paths) {
 
         try {
             LogCommand logCommand = this.git
                     .log()
                     .setMaxCount(100);
 
-            String modulePath = PathUtil.relativePath(this.baseDir, path);
-            if (!modulePath.isEmpty()) {
-                logCommand.addPath(modulePath);
-            }
+            addPaths(logCommand, paths);
 
             RevCommit lastCommit = logCommand.call().iterator().next();
             return new Date(lastCommit.getCommitTime() * 1000L);
@@ -90,29 +95,35 @@ public class ScmHandlerGitImpl implements ScmHandler {
         throw new RuntimeException("Operation checkChangesSinceRevision() not supported by the GIT handler");
     }
 
+    @Override
+    public boolean checkChangesSinceRevision(List<File> moduleDirectories, long sinceRevision, long workspaceRevision) {
+        throw new RuntimeException("Operation checkChangesSinceRevision() not supported by the GIT handler");
+    }
+
     @Override
     public boolean checkChangesSinceDate(File moduleDirectory, final Date sinceDate, final Date workspaceLastCommitDate) {
+        return checkChangesSinceDate(Collections.singletonList(moduleDirectory), sinceDate, workspaceLastCommitDate);
+    }
+
+    @Override
+    public boolean checkChangesSinceDate(List<File> moduleDirectories, final Date sinceDate, final Date workspaceLastCommitDate) {
         if (this.git == null) {
             return false;
         }
 
         try {
-            String modulePath = PathUtil.relativePath(this.baseDir, moduleDirectory);
-
             LogCommand logCommand = this.git
                     .log()
                     .setMaxCount(100);
 
-            if (!modulePath.isEmpty()) {
-                logCommand.addPath(modulePath);
-            }
+            addPaths(logCommand, moduleDirectories);
 
             for (RevCommit commit : logCommand.call()) {
                 Date commitTime = new Date(commit.getCommitTime() * 1000L);
                 if (commitTime.after(sinceDate)) {
                     if (!commit.getFullMessage().startsWith(NONSNAPSHOT_COMMIT_MESSAGE_PREFIX)) {
-                        LOG.debug("Module folder {}: Change since last commit: rev{} @ {} ({})",
-                                moduleDirectory.getAbsolutePath(), commit.getId(), commitTime, commit.getFullMessage());
+                        LOG.debug("Module folders {}: Change since last commit: rev{} @ {} ({})",
+                                moduleDirectories, commit.getId(), commitTime, commit.getFullMessage());
                         return true;
                     }
                 } else {
@@ -121,18 +132,41 @@ public class ScmHandlerGitImpl implements ScmHandler {
             }
 
         } catch (Exception e) {
-            LOG.warn("Failed to check changes for path: {}" + moduleDirectory.getAbsolutePath(), e);
+            LOG.warn("Failed to check changes for paths: {}" + moduleDirectories, e);
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Restrict the log to given paths. If one of them is the base directory the whole repository is logged.
+     */
+    private void addPaths(LogCommand logCommand, List<File> paths) throws IOException {
+        List<String> relativePaths = new ArrayList<>(paths.size());
+        for (File path : paths) {
+            String relativePath = PathUtil.relativePath(this.baseDir, path);
+            if (relativePath.isEmpty()) {
+                return;
+            }
+            relativePaths.add(relativePath);
+        }
+
+        for (String relativePath : relativePaths) {
+            logCommand.addPath(relativePath);
+        }
+    }
+
     @Override
     public long getCurrentRevisionId(File path) {
         throw new RuntimeException("Operation getCurrentRevisionId() not supported by the GIT handler");
     }
 
+    @Override
+    public long getCurrentRevisionId(List<File> paths) {
+        throw new RuntimeException("Operation getCurrentRevisionId() not supported by the GIT handler");
+    }
+
     @Override
     public void commitFiles(List<File> files, String commitMessage) {
         LOG.debug("Committing files: {}", files);
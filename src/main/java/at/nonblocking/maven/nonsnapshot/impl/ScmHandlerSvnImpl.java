@@ -17,6 +17,7 @@ package at.nonblocking.maven.nonsnapshot.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -58,11 +59,16 @@ public class ScmHandlerSvnImpl implements ScmHandler {
 
     @Override
     public boolean checkChangesSinceRevision(final File moduleDirectory, final long sinceRevision, final long workspaceRevision) {
+        return checkChangesSinceRevision(Collections.singletonList(moduleDirectory), sinceRevision, workspaceRevision);
+    }
+
+    @Override
+    public boolean checkChangesSinceRevision(final List<File> moduleDirectories, final long sinceRevision, final long workspaceRevision) {
         final Boolean[] changes = new Boolean[1];
         changes[0] = false;
 
         try {
-            this.svnClientManager.getLogClient().doLog(new File[]{moduleDirectory},
+            this.svnClientManager.getLogClient().doLog(moduleDirectories.toArray(new File[0]),
                     SVNRevision.WORKING,
                     SVNRevision.create(sinceRevision + 1),
                     SVNRevision.create(workspaceRevision),
@@ -70,14 +76,14 @@ public class ScmHandlerSvnImpl implements ScmHandler {
                     100L,
                     svnLogEntry -> {
                         if (!svnLogEntry.getMessage().startsWith(NONSNAPSHOT_COMMIT_MESSAGE_PREFIX)) {
-                            LOG.debug("Module folder {}: Change since last commit: rev{} @ {} ({})",
-                                    moduleDirectory.getAbsolutePath(), svnLogEntry.getRevision(), svnLogEntry.getDate(), svnLogEntry.getMessage());
+                            LOG.debug("Module folders {}: Change since last commit: rev{} @ {} ({})",
+                                    moduleDirectories, svnLogEntry.getRevision(), svnLogEntry.getDate(), svnLogEntry.getMessage());
                             changes[0] = true;
                         }
                     });
 
         } catch (SVNException e) {
-            LOG.warn("Failed to check changes for path: {}" + moduleDirectory.getAbsolutePath(), e);
+            LOG.warn("Failed to check changes for paths: {}" + moduleDirectories, e);
             return true;
         }
 
@@ -86,11 +92,16 @@ public class ScmHandlerSvnImpl implements ScmHandler {
 
     @Override
     public boolean checkChangesSinceDate(final File moduleDirectory, final Date sinceDate, final Date workspaceLastCommitDate) {
+        return checkChangesSinceDate(Collections.singletonList(moduleDirectory), sinceDate, workspaceLastCommitDate);
+    }
+
+    @Override
+    public boolean checkChangesSinceDate(final List<File> moduleDirectories, final Date sinceDate, final Date workspaceLastCommitDate) {
         final Boolean[] changes = new Boolean[1];
         changes[0] = false;
 
         try {
-            this.svnClientManager.getLogClient().doLog(new File[]{moduleDirectory},
+            this.svnClientManager.getLogClient().doLog(moduleDirectories.toArray(new File[0]),
                     SVNRevision.WORKING,
                     SVNRevision.create(sinceDate),
                     SVNRevision.create(workspaceLastCommitDate),
@@ -98,14 +109,14 @@ public class ScmHandlerSvnImpl implements ScmHandler {
                     100L,
                     svnLogEntry -> {
                         if (!svnLogEntry.getMessage().startsWith(NONSNAPSHOT_COMMIT_MESSAGE_PREFIX)) {
-                            LOG.debug("Module folder {}: Change since last commit: rev{} @ {} ({})",
-                                    moduleDirectory.getAbsolutePath(), svnLogEntry.getRevision(), svnLogEntry.getDate(), svnLogEntry.getMessage());
+                            LOG.debug("Module folders {}: Change since last commit: rev{} @ {} ({})",
+                                    moduleDirectories, svnLogEntry.getRevision(), svnLogEntry.getDate(), svnLogEntry.getMessage());
                             changes[0] = true;
                         }
                     });
 
         } catch (SVNException e) {
-            LOG.warn("Failed to check changes for path: {}" + moduleDirectory.getAbsolutePath(), e);
+            LOG.warn("Failed to check changes for paths: {}" + moduleDirectories, e);
             return true;
         }
 
@@ -122,6 +133,26 @@ public class ScmHandlerSvnImpl implements ScmHandler {
         }
     }
 
+    @Override
+    public Date getLastCommitDate(final List<File> paths) {
+        final Date[] lastCommitDate = new Date[1];
+
+        try {
+            this.svnClientManager.getLogClient().doLog(paths.toArray(new File[0]),
+                    SVNRevision.WORKING,
+                    SVNRevision.BASE,
+                    SVNRevision.create(0),
+                    false, false,
+                    1L,
+                    svnLogEntry -> lastCommitDate[0] = svnLogEntry.getDate());
+
+        } catch (SVNException e) {
+            throw new NonSnapshotPluginException("Failed to obtain last commit date for paths: " + paths, e);
+        }
+
+        return lastCommitDate[0];
+    }
+
     @Override
     public long getCurrentRevisionId(File path) {
         try {
@@ -132,6 +163,16 @@ public class ScmHandlerSvnImpl implements ScmHandler {
         }
     }
 
+    @Override
+    public long getCurrentRevisionId(List<File> paths) {
+        // The working copy revision is local metadata without a log equivalent, so each path is asked separately
+        long revision = 0;
+        for (File path : paths) {
+            revision = Math.max(revision, getCurrentRevisionId(path));
+        }
+        return revision;
+    }
+
     @Override
     public void commitFiles(List<File> files, String commitMessage) {
         LOG.debug("Committing files: {}", files);
@@ -23,19 +23,47 @@ import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import org.codehaus.plexus.component.annotations.Component;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
 import org.eclipse.aether.resolution.VersionRangeResolutionException;
 import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
 import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionRange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -48,6 +76,61 @@ public class UpstreamDependencyHandlerDefaultImpl implements UpstreamDependencyH
 
     private static final Logger LOG = LoggerFactory.getLogger(UpstreamDependencyHandlerDefaultImpl.class);
 
+    private static final String RESOLVED_VERSIONS_KEY = UpstreamDependencyHandlerDefaultImpl.class.getName() + ".versionQueries";
+
+    private static final String LOCAL_REPOSITORY_CACHE_NAME = "local";
+
+    private static final GenericVersionScheme VERSION_SCHEME = new GenericVersionScheme();
+
+    private File cacheDirectory;
+    private long cacheTimeToLive;
+    private boolean cacheRefresh;
+
+    private final Map<String, Properties> persistentCaches = new ConcurrentHashMap<>();
+    private final Set<String> modifiedPersistentCaches = ConcurrentHashMap.newKeySet();
+
+    private volatile UpstreamDependencyMatcher matcher;
+
+    private boolean offlineResolution;
+    private long metadataMaxAge;
+    private volatile LocalRepositoryMetadataIndex metadataIndex;
+
+    private long queryTimeout;
+    private int circuitBreakerThreshold;
+    private final Map<String, RepositoryCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private volatile ExecutorService queryExecutor;
+
+    @Override
+    public void init(Properties properties) {
+        String cacheDirectoryName = properties.getProperty(PROPERTY_CACHE_DIRECTORY);
+        this.cacheDirectory = cacheDirectoryName != null ? new File(cacheDirectoryName) : null;
+        this.cacheTimeToLive = TimeUnit.MINUTES.toMillis(Long.parseLong(properties.getProperty(PROPERTY_CACHE_TIME_TO_LIVE, "0")));
+        this.cacheRefresh = Boolean.parseBoolean(properties.getProperty(PROPERTY_CACHE_REFRESH, "false"));
+        this.persistentCaches.clear();
+        this.modifiedPersistentCaches.clear();
+        this.offlineResolution = Boolean.parseBoolean(properties.getProperty(PROPERTY_OFFLINE_RESOLUTION, "false"));
+        this.metadataMaxAge = TimeUnit.MINUTES.toMillis(Long.parseLong(properties.getProperty(PROPERTY_METADATA_MAX_AGE, "0")));
+        this.metadataIndex = null;
+        this.queryTimeout = Long.parseLong(properties.getProperty(PROPERTY_QUERY_TIMEOUT, "0"));
+        this.circuitBreakerThreshold = Integer.parseInt(properties.getProperty(PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "0"));
+        this.circuitBreakers.clear();
+
+        shutdown();
+        if (this.queryTimeout > 0) {
+            int queryThreads = Math.max(1, Integer.parseInt(properties.getProperty(PROPERTY_QUERY_THREADS, "1")));
+            this.queryExecutor = Executors.newFixedThreadPool(queryThreads, runnable -> {
+                Thread thread = new Thread(runnable, "nonsnapshot-upstream-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        if (this.cacheDirectory != null && this.cacheTimeToLive > 0) {
+            LOG.debug("Persistent upstream version cache: {} (time to live: {} minutes, refresh: {})",
+                    this.cacheDirectory.getAbsolutePath(), properties.getProperty(PROPERTY_CACHE_TIME_TO_LIVE), this.cacheRefresh);
+        }
+    }
+
     @Override
     public List<ProcessedUpstreamDependency> processDependencyList(List<String> upstreamDependencyStrings) {
         if (upstreamDependencyStrings == null || upstreamDependencyStrings.isEmpty()) {
@@ -110,14 +193,13 @@ public class UpstreamDependencyHandlerDefaultImpl implements UpstreamDependencyH
             return null;
         }
 
-        for (ProcessedUpstreamDependency upstreamDependency : upstreamDependencies) {
-            if (upstreamDependency.getGroupPattern().matcher(mavenArtifact.getGroupId()).matches()
-                    && upstreamDependency.getArtifactPattern().matcher(mavenArtifact.getArtifactId()).matches()) {
-                return upstreamDependency;
-            }
+        UpstreamDependencyMatcher currentMatcher = this.matcher;
+        if (currentMatcher == null || currentMatcher.getUpstreamDependencies() != upstreamDependencies) {
+            currentMatcher = new UpstreamDependencyMatcher(upstreamDependencies);
+            this.matcher = currentMatcher;
         }
 
-        return null;
+        return currentMatcher.findMatch(mavenArtifact.getGroupId(), mavenArtifact.getArtifactId());
     }
 
     @Override
@@ -152,33 +234,513 @@ public class UpstreamDependencyHandlerDefaultImpl implements UpstreamDependencyH
             versionQuery = mavenArtifact.getGroupId() + ":" + mavenArtifact.getArtifactId() + ":(" + currentVersion + ",)";
         }
 
+        Map<String, Future<ResolvedVersion>> resolvedVersions = getResolvedVersionsCache(repositorySystemSession);
+        if (resolvedVersions == null) {
+            return resolveLatestVersion(versionQuery, versionPrefix, currentVersion, repositorySystem, repositorySystemSession, remoteRepositories);
+        }
+
+        // Concurrent identical queries wait for the first one instead of querying the repositories again
+        final String finalCurrentVersion = currentVersion;
+        FutureTask<ResolvedVersion> newQuery = new FutureTask<>(() -> {
+            try {
+                return new ResolvedVersion(resolveLatestVersion(versionQuery, versionPrefix, finalCurrentVersion, repositorySystem, repositorySystemSession, remoteRepositories), null);
+            } catch (NonSnapshotDependencyResolverException e) {
+                return new ResolvedVersion(null, e);
+            }
+        });
+
+        String cacheKey = createCacheKey(versionQuery, versionPrefix, remoteRepositories);
+        Future<ResolvedVersion> query = resolvedVersions.computeIfAbsent(cacheKey, key -> newQuery);
+        if (query == newQuery) {
+            newQuery.run();
+        } else {
+            LOG.debug("Using already resolved version for {}", versionQuery);
+        }
+
+        ResolvedVersion resolvedVersion;
+        try {
+            resolvedVersion = query.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NonSnapshotPluginException("Interrupted while resolving upstream version", e);
+        } catch (ExecutionException e) {
+            // Only regular resolution failures are kept
+            resolvedVersions.remove(cacheKey, query);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NonSnapshotPluginException("Upstream version resolution failed", e.getCause());
+        }
+
+        if (resolvedVersion.error != null) {
+            throw resolvedVersion.error;
+        }
+        return resolvedVersion.version;
+    }
+
+    private String resolveLatestVersion(String versionQuery, String versionPrefix, String currentVersion,
+                                        RepositorySystem repositorySystem, RepositorySystemSession repositorySystemSession,
+                                        List<RemoteRepository> remoteRepositories) throws NonSnapshotDependencyResolverException {
+        if (this.offlineResolution) {
+            ResolvedVersion localVersion = resolveLatestVersionFromLocalMetadata(versionQuery, versionPrefix, repositorySystemSession);
+            if (localVersion != null) {
+                return localVersion.version;
+            }
+        }
+
+        if (this.cacheDirectory == null || this.cacheTimeToLive <= 0) {
+            return resolveLatestVersionFromRepositories(versionQuery, versionPrefix, currentVersion, repositorySystem, repositorySystemSession, remoteRepositories);
+        }
+
+        String cacheName = createRepositoriesName(remoteRepositories);
+        Properties persistentCache = getPersistentCache(cacheName);
+        String cacheKey = versionQuery + "|" + versionPrefix;
+
+        String cacheEntry = persistentCache.getProperty(cacheKey);
+        if (cacheEntry != null && !this.cacheRefresh) {
+            int separator = cacheEntry.indexOf('|');
+            try {
+                long resolvedAt = Long.parseLong(cacheEntry.substring(0, separator));
+                if (System.currentTimeMillis() - resolvedAt < this.cacheTimeToLive) {
+                    String version = cacheEntry.substring(separator + 1);
+                    LOG.debug("Using cached version for {}: {}", versionQuery, version);
+                    return version.isEmpty() ? null : version;
+                }
+            } catch (RuntimeException e) {
+                LOG.debug("Ignoring invalid cache entry for {}: {}", versionQuery, cacheEntry);
+            }
+        }
+
+        String version;
+        try {
+            version = resolveLatestVersionFromRepositories(versionQuery, versionPrefix, currentVersion, repositorySystem, repositorySystemSession, remoteRepositories);
+        } catch (NonSnapshotDependencyResolverException e) {
+            if (cacheEntry != null && cacheEntry.indexOf('|') >= 0) {
+                String cachedVersion = cacheEntry.substring(cacheEntry.indexOf('|') + 1);
+                LOG.warn("Upstream resolution of {} failed, using the expired cached version: {}. Error: {}", versionQuery, cachedVersion, e.getMessage());
+                return cachedVersion.isEmpty() ? null : cachedVersion;
+            }
+            throw e;
+        }
+
+        persistentCache.setProperty(cacheKey, System.currentTimeMillis() + "|" + (version != null ? version : ""));
+        this.modifiedPersistentCaches.add(cacheName);
+
+        return version;
+    }
+
+    @Override
+    public void storeCache() {
+        for (String cacheName : this.modifiedPersistentCaches) {
+            if (this.modifiedPersistentCaches.remove(cacheName)) {
+                storePersistentCache(cacheName, this.persistentCaches.get(cacheName));
+            }
+        }
+    }
+
+    private String resolveLatestVersionFromRepositories(String versionQuery, String versionPrefix, String currentVersion,
+                                                        RepositorySystem repositorySystem, RepositorySystemSession repositorySystemSession,
+                                                        List<RemoteRepository> remoteRepositories) throws NonSnapshotDependencyResolverException {
+        List<RemoteRepository> availableRepositories = getAvailableRepositories(remoteRepositories);
+        if (availableRepositories.isEmpty() && remoteRepositories != null && !remoteRepositories.isEmpty()) {
+            throw new NonSnapshotDependencyResolverException("Skipped resolution of " + versionQuery + " after " + this.circuitBreakerThreshold
+                    + " consecutive failures of repositories: " + createRepositoriesName(remoteRepositories) + ". Keeping current version " + currentVersion);
+        }
+
         Artifact aetherArtifact = new DefaultArtifact(versionQuery);
 
         VersionRangeRequest rangeRequest = new VersionRangeRequest();
         rangeRequest.setArtifact(aetherArtifact);
-        rangeRequest.setRepositories(remoteRepositories);
+        rangeRequest.setRepositories(availableRepositories);
 
         try {
             LOG.debug("Resolving versions for {}", versionQuery);
-            VersionRangeResult result = repositorySystem.resolveVersionRange(repositorySystemSession, rangeRequest);
+            VersionRangeResult result = resolveVersionRange(repositorySystem, repositorySystemSession, rangeRequest);
             LOG.debug("Found versions for {}: {}", versionQuery, result);
 
-            List<Version> versions = result.getVersions();
-            Collections.reverse(versions);
+            List<RemoteRepository> failedRepositories = getFailedRepositories(result, availableRepositories);
+            List<RemoteRepository> succeededRepositories = new ArrayList<>(availableRepositories);
+            succeededRepositories.removeAll(failedRepositories);
+            registerFailure(failedRepositories);
+            registerSuccess(succeededRepositories);
+            if (!failedRepositories.isEmpty()) {
+                // An incomplete result must neither be cached nor win over an expired cache entry
+                throw new NonSnapshotDependencyResolverException("Couldn't resolve latest upstream version for: " + versionQuery
+                        + " from repositories: " + createRepositoriesName(failedRepositories) + ". Keeping current version " + currentVersion,
+                        getTransferError(result));
+            }
+            return selectLatestVersion(result.getVersions(), versionPrefix);
+        } catch (VersionRangeResolutionException e) {
+            registerFailure(availableRepositories);
+            throw new NonSnapshotDependencyResolverException("Couldn't resolve latest upstream version for: " + versionQuery + ". Keeping current version " + currentVersion, e);
+        } catch (TimeoutException e) {
+            registerFailure(availableRepositories);
+            throw new NonSnapshotDependencyResolverException("Timeout resolving latest upstream version for: " + versionQuery + ". Keeping current version " + currentVersion, e);
+        }
+    }
+
+    /**
+     * The given repositories without the ones with an open circuit breaker.
+     */
+    private List<RemoteRepository> getAvailableRepositories(List<RemoteRepository> remoteRepositories) {
+        if (remoteRepositories == null || remoteRepositories.isEmpty() || this.circuitBreakerThreshold <= 0) {
+            return remoteRepositories != null ? remoteRepositories : Collections.<RemoteRepository>emptyList();
+        }
+
+        List<RemoteRepository> availableRepositories = new ArrayList<>(remoteRepositories.size());
+        for (RemoteRepository remoteRepository : remoteRepositories) {
+            if (getCircuitBreaker(remoteRepository).isOpen(this.circuitBreakerThreshold)) {
+                LOG.debug("Skipping repository {} after {} consecutive failures", remoteRepository.getId(), this.circuitBreakerThreshold);
+            } else {
+                availableRepositories.add(remoteRepository);
+            }
+        }
+        return availableRepositories;
+    }
+
+    private RepositoryCircuitBreaker getCircuitBreaker(RemoteRepository remoteRepository) {
+        return this.circuitBreakers.computeIfAbsent(remoteRepository.getId(), id -> new RepositoryCircuitBreaker());
+    }
+
+    /**
+     * Resolve the version range with the configured timeout. The query runs in a separate thread, so the caller
+     * doesn't have to wait for the transport timeout.
+     */
+    private VersionRangeResult resolveVersionRange(RepositorySystem repositorySystem, RepositorySystemSession repositorySystemSession,
+                                                   VersionRangeRequest rangeRequest) throws VersionRangeResolutionException, TimeoutException {
+        if (this.queryTimeout <= 0) {
+            return repositorySystem.resolveVersionRange(repositorySystemSession, rangeRequest);
+        }
+
+        ExecutorService executor = this.queryExecutor;
+        if (executor == null) {
+            throw new NonSnapshotPluginException("Upstream dependency handler has already been shut down");
+        }
+
+        Future<VersionRangeResult> result = executor.submit(() -> repositorySystem.resolveVersionRange(repositorySystemSession, rangeRequest));
+        try {
+            return result.get(this.queryTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new NonSnapshotPluginException("Interrupted while resolving upstream version", e);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof VersionRangeResolutionException) {
+                throw (VersionRangeResolutionException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NonSnapshotPluginException("Upstream version resolution failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.queryExecutor != null) {
+            this.queryExecutor.shutdownNow();
+            this.queryExecutor = null;
+        }
+    }
+
+    /**
+     * The version range resolver doesn't throw on metadata transfer errors (e.g. a repository returning 5xx),
+     * it just records them in the result. Missing metadata is no failure.
+     *
+     * @return List&lt;RemoteRepository&gt; The queried repositories with a transfer error
+     */
+    private List<RemoteRepository> getFailedRepositories(VersionRangeResult result, List<RemoteRepository> queriedRepositories) {
+        List<RemoteRepository> failedRepositories = new ArrayList<>();
+        for (Exception exception : result.getExceptions()) {
+            if (exception instanceof MetadataNotFoundException) {
+                continue;
+            }
+            RemoteRepository failedRepository = exception instanceof MetadataTransferException ? ((MetadataTransferException) exception).getRepository() : null;
+            if (failedRepository == null) {
+                return queriedRepositories;
+            }
+            for (RemoteRepository queriedRepository : queriedRepositories) {
+                if (queriedRepository.getId().equals(failedRepository.getId()) && !failedRepositories.contains(queriedRepository)) {
+                    LOG.debug("Upstream resolution failure of repository {}: {}", queriedRepository.getId(), exception.getMessage());
+                    failedRepositories.add(queriedRepository);
+                }
+            }
+        }
+        return failedRepositories;
+    }
+
+    private Exception getTransferError(VersionRangeResult result) {
+        for (Exception exception : result.getExceptions()) {
+            if (!(exception instanceof MetadataNotFoundException)) {
+                return exception;
+            }
+        }
+        return null;
+    }
+
+    private void registerSuccess(List<RemoteRepository> queriedRepositories) {
+        if (this.circuitBreakerThreshold <= 0) {
+            return;
+        }
+        for (RemoteRepository remoteRepository : queriedRepositories) {
+            getCircuitBreaker(remoteRepository).registerSuccess();
+        }
+    }
+
+    /**
+     * Failures that can't be attributed to a single repository (e.g. timeouts) are accounted to all queried repositories.
+     */
+    private void registerFailure(List<RemoteRepository> queriedRepositories) {
+        if (this.circuitBreakerThreshold <= 0) {
+            return;
+        }
+        for (RemoteRepository remoteRepository : queriedRepositories) {
+            if (getCircuitBreaker(remoteRepository).registerFailure(this.circuitBreakerThreshold)) {
+                LOG.warn("{} consecutive upstream resolution failures of repository {}. No more queries will be sent to it.",
+                        this.circuitBreakerThreshold, remoteRepository.getId());
+            }
+        }
+    }
+
+    /**
+     * Find the latest version within the prefix bounds by binary search: All versions with prefix 1.1 are
+     * between 1.1.min and 1.1.max in the generic version scheme (but not 1.10).
+     *
+     * @param versions      List&lt;Version&gt; in ascending order
+     * @param versionPrefix String
+     * @return String The latest non snapshot version with given prefix or null
+     */
+    private String selectLatestVersion(List<Version> versions, String versionPrefix) {
+        if (!(versions instanceof RandomAccess)) {
+            versions = new ArrayList<>(versions);
+        }
+
+        int index = versions.size() - 1;
+        Version lowerBound = null;
+
+        if (!versionPrefix.isEmpty()) {
+            try {
+                Version upperBound = VERSION_SCHEME.parseVersion(versionPrefix + ".max");
+                lowerBound = VERSION_SCHEME.parseVersion(versionPrefix + ".min");
+                index = findLastIndexBelow(versions, upperBound);
+            } catch (InvalidVersionSpecificationException e) {
+                throw new NonSnapshotPluginException("Invalid version prefix: " + versionPrefix, e);
+            }
+        }
+
+        for (; index >= 0; index--) {
+            Version version = versions.get(index);
+            if (lowerBound != null && version.compareTo(lowerBound) < 0) {
+                break;
+            }
+            String versionStr = version.toString();
+            if (!versionStr.endsWith("-SNAPSHOT")) {
+                return versionStr;
+            }
+        }
 
-            for (Version version : versions) {
-                String versionStr = version.toString();
-                if (!versionStr.endsWith("-SNAPSHOT") && versionStr.startsWith(versionPrefix)) {
-                    return versionStr;
+        return null;
+    }
+
+    /**
+     * @return int The index of the last version lower than given bound, -1 if there is none
+     */
+    private int findLastIndexBelow(List<Version> versions, Version bound) {
+        int low = 0;
+        int high = versions.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (versions.get(mid).compareTo(bound) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Answer the version query from the metadata in the local repository.
+     *
+     * @return ResolvedVersion or null if there is no (or only stale) metadata for the artifact
+     */
+    private ResolvedVersion resolveLatestVersionFromLocalMetadata(String versionQuery, String versionPrefix, RepositorySystemSession repositorySystemSession) {
+        LocalRepositoryMetadataIndex index = getMetadataIndex(repositorySystemSession);
+        if (index == null) {
+            return null;
+        }
+
+        int rangeStart = versionQuery.lastIndexOf(':');
+        String[] ga = versionQuery.substring(0, rangeStart).split(":");
+        LocalRepositoryMetadataIndex.LocalMetadata localMetadata = index.get(ga[0], ga[1]);
+        if (localMetadata == null) {
+            LOG.debug("No local metadata found for {}", versionQuery);
+            return null;
+        }
+        if (this.metadataMaxAge > 0 && System.currentTimeMillis() - localMetadata.getLastUpdated() > this.metadataMaxAge) {
+            LOG.debug("Local metadata for {} is stale", versionQuery);
+            return null;
+        }
+
+        try {
+            VersionRange versionRange = VERSION_SCHEME.parseVersionRange(versionQuery.substring(rangeStart + 1));
+            List<Version> versions = new ArrayList<>();
+            for (String versionStr : localMetadata.getVersions()) {
+                Version version = VERSION_SCHEME.parseVersion(versionStr);
+                if (versionRange.containsVersion(version)) {
+                    versions.add(version);
                 }
             }
+            Collections.sort(versions);
+
+            String latestVersion = selectLatestVersion(versions, versionPrefix);
+            LOG.debug("Resolved {} from the local metadata: {}", versionQuery, latestVersion);
+            return new ResolvedVersion(latestVersion, null);
 
+        } catch (InvalidVersionSpecificationException e) {
+            LOG.debug("Invalid version range or version for {}: {}", versionQuery, e.getMessage());
             return null;
+        }
+    }
 
-        } catch (VersionRangeResolutionException e) {
-            throw new NonSnapshotDependencyResolverException("Couldn't resolve latest upstream version for: " + versionQuery + ". Keeping current version " + currentVersion, e);
+    private LocalRepositoryMetadataIndex getMetadataIndex(RepositorySystemSession repositorySystemSession) {
+        if (repositorySystemSession == null || repositorySystemSession.getLocalRepository() == null) {
+            return null;
+        }
+
+        File localRepositoryDirectory = repositorySystemSession.getLocalRepository().getBasedir();
+        LocalRepositoryMetadataIndex index = this.metadataIndex;
+        if (index == null || !index.getLocalRepositoryDirectory().equals(localRepositoryDirectory)) {
+            synchronized (this) {
+                index = this.metadataIndex;
+                if (index == null || !index.getLocalRepositoryDirectory().equals(localRepositoryDirectory)) {
+                    index = new LocalRepositoryMetadataIndex(localRepositoryDirectory);
+                    this.metadataIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The persistent cache is kept per set of remote repositories, since the result depends on them.
+     */
+    private String createRepositoriesName(List<RemoteRepository> remoteRepositories) {
+        if (remoteRepositories == null || remoteRepositories.isEmpty()) {
+            return LOCAL_REPOSITORY_CACHE_NAME;
+        }
+
+        StringBuilder cacheName = new StringBuilder();
+        for (RemoteRepository remoteRepository : remoteRepositories) {
+            if (cacheName.length() > 0) {
+                cacheName.append('+');
+            }
+            cacheName.append(remoteRepository.getId().replaceAll("[^A-Za-z0-9._-]", "_"));
+        }
+        return cacheName.toString();
+    }
+
+    private Properties getPersistentCache(String cacheName) {
+        return this.persistentCaches.computeIfAbsent(cacheName, name -> {
+            Properties persistentCache = new Properties();
+            File cacheFile = new File(this.cacheDirectory, name + ".properties");
+            if (cacheFile.exists()) {
+                try (InputStream inputStream = new FileInputStream(cacheFile)) {
+                    persistentCache.load(inputStream);
+                } catch (IOException e) {
+                    LOG.warn("Failed to read upstream version cache: {}", cacheFile.getAbsolutePath(), e);
+                }
+            }
+            return persistentCache;
+        });
+    }
+
+    private void storePersistentCache(String cacheName, Properties persistentCache) {
+        File cacheFile = new File(this.cacheDirectory, cacheName + ".properties");
+
+        try {
+            Files.createDirectories(this.cacheDirectory.toPath());
+            File tempFile = File.createTempFile(cacheName, ".tmp", this.cacheDirectory);
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                persistentCache.store(outputStream, "Upstream versions resolved by nonsnapshot-maven-plugin");
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException e) {
+            LOG.warn("Failed to write upstream version cache: {}", cacheFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * The resolved versions are kept in the session data, so each version query goes to the repository system
+     * only once per Maven session, even if the goal is executed multiple times.
+     *
+     * @return Map&lt;String, Future&lt;ResolvedVersion&gt;&gt; or null if the session doesn't support session data
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Future<ResolvedVersion>> getResolvedVersionsCache(RepositorySystemSession repositorySystemSession) {
+        SessionData sessionData = repositorySystemSession != null ? repositorySystemSession.getData() : null;
+        if (sessionData == null) {
+            return null;
+        }
+
+        Object resolvedVersions = sessionData.get(RESOLVED_VERSIONS_KEY);
+        if (resolvedVersions == null) {
+            sessionData.set(RESOLVED_VERSIONS_KEY, null, new ConcurrentHashMap<String, Future<ResolvedVersion>>());
+            resolvedVersions = sessionData.get(RESOLVED_VERSIONS_KEY);
+        }
+        return (Map<String, Future<ResolvedVersion>>) resolvedVersions;
+    }
+
+    private String createCacheKey(String versionQuery, String versionPrefix, List<RemoteRepository> remoteRepositories) {
+        StringBuilder cacheKey = new StringBuilder(versionQuery).append('|').append(versionPrefix);
+        if (remoteRepositories != null) {
+            for (RemoteRepository remoteRepository : remoteRepositories) {
+                cacheKey.append('|').append(remoteRepository.getId());
+            }
+        }
+        return cacheKey.toString();
+    }
+
+    /**
+     * Consecutive failures of a single remote repository.
+     */
+    private static final class RepositoryCircuitBreaker {
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicBoolean opened = new AtomicBoolean();
+
+        private boolean isOpen(int threshold) {
+            return this.consecutiveFailures.get() >= threshold;
+        }
+
+        /**
+         * @return boolean True if the circuit breaker has been opened by this failure (only reported once)
+         */
+        private boolean registerFailure(int threshold) {
+            return this.consecutiveFailures.incrementAndGet() >= threshold && this.opened.compareAndSet(false, true);
+        }
+
+        private void registerSuccess() {
+            this.consecutiveFailures.set(0);
+            this.opened.set(false);
         }
     }
 
+    /**
+     * Result of a version query: The latest version (null if there is no newer version) or the resolution error.
+     */
+    private static final class ResolvedVersion {
+
+        private final String version;
+        private final NonSnapshotDependencyResolverException error;
+
+        private ResolvedVersion(String version, NonSnapshotDependencyResolverException error) {
+            this.version = version;
+            this.error = error;
+        }
+    }
 
 }
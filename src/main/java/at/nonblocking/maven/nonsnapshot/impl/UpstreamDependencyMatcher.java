@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import at.nonblocking.maven.nonsnapshot.ProcessedUpstreamDependency;
+
+/**
+ * Matcher for a fixed list of upstream dependency declarations.
+ * <br><br>
+ * The declarations are compiled once: Literal groupIds are looked up in a hash map, groupIds ending with a wildcard
+ * in a prefix trie and only the remaining patterns are evaluated as regular expressions.
+ * The first matching declaration (in definition order) wins. The result is memoized per groupId:artifactId.
+ *
+ * @author Juergen Kofler
+ */
+final class UpstreamDependencyMatcher {
+
+    private static final int NO_MATCH = -1;
+
+    private final List<ProcessedUpstreamDependency> upstreamDependencies;
+    private final NameMatcher[] artifactMatchers;
+
+    private final Map<String, List<Integer>> literalGroups = new HashMap<>();
+    private final TrieNode groupPrefixes = new TrieNode();
+    private final List<Integer> regexGroups = new ArrayList<>();
+    private final NameMatcher[] regexGroupMatchers;
+
+    private final Map<String, Integer> matches = new ConcurrentHashMap<>();
+
+    UpstreamDependencyMatcher(List<ProcessedUpstreamDependency> upstreamDependencies) {
+        this.upstreamDependencies = upstreamDependencies;
+        this.artifactMatchers = new NameMatcher[upstreamDependencies.size()];
+        this.regexGroupMatchers = new NameMatcher[upstreamDependencies.size()];
+
+        for (int i = 0; i < upstreamDependencies.size(); i++) {
+            ProcessedUpstreamDependency upstreamDependency = upstreamDependencies.get(i);
+            this.artifactMatchers[i] = NameMatcher.compile(upstreamDependency.getArtifactPattern());
+
+            NameMatcher groupMatcher = NameMatcher.compile(upstreamDependency.getGroupPattern());
+            if (groupMatcher.type == NameMatcher.LITERAL) {
+                this.literalGroups.computeIfAbsent(groupMatcher.literal, key -> new ArrayList<>()).add(i);
+            } else if (groupMatcher.type == NameMatcher.PREFIX) {
+                this.groupPrefixes.add(groupMatcher.literal, i);
+            } else {
+                this.regexGroups.add(i);
+                this.regexGroupMatchers[i] = groupMatcher;
+            }
+        }
+    }
+
+    List<ProcessedUpstreamDependency> getUpstreamDependencies() {
+        return this.upstreamDependencies;
+    }
+
+    ProcessedUpstreamDependency findMatch(String groupId, String artifactId) {
+        groupId = groupId != null ? groupId : "";
+        artifactId = artifactId != null ? artifactId : "";
+
+        String key = groupId + ":" + artifactId;
+        Integer match = this.matches.get(key);
+        if (match == null) {
+            match = calculateMatch(groupId, artifactId);
+            this.matches.put(key, match);
+        }
+        return match != NO_MATCH ? this.upstreamDependencies.get(match) : null;
+    }
+
+    private int calculateMatch(String groupId, String artifactId) {
+        int match = firstArtifactMatch(this.literalGroups.get(groupId), artifactId, NO_MATCH);
+
+        TrieNode node = this.groupPrefixes;
+        for (int i = 0; node != null; i++) {
+            match = firstArtifactMatch(node.upstreamDependencies, artifactId, match);
+            node = i < groupId.length() ? node.children.get(groupId.charAt(i)) : null;
+        }
+
+        for (int index : this.regexGroups) {
+            if (match != NO_MATCH && index > match) {
+                break;
+            }
+            if (this.regexGroupMatchers[index].matches(groupId) && this.artifactMatchers[index].matches(artifactId)) {
+                match = index;
+                break;
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * @return int The lowest index from given candidates matching the artifactId, if lower than the current match
+     */
+    private int firstArtifactMatch(List<Integer> candidates, String artifactId, int currentMatch) {
+        if (candidates == null) {
+            return currentMatch;
+        }
+        for (int index : candidates) {
+            if (currentMatch != NO_MATCH && index > currentMatch) {
+                break;
+            }
+            if (this.artifactMatchers[index].matches(artifactId)) {
+                return index;
+            }
+        }
+        return currentMatch;
+    }
+
+    private static final class TrieNode {
+
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private List<Integer> upstreamDependencies;
+
+        void add(String prefix, int index) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), key -> new TrieNode());
+            }
+            if (node.upstreamDependencies == null) {
+                node.upstreamDependencies = new ArrayList<>();
+            }
+            node.upstreamDependencies.add(index);
+        }
+    }
+
+    /**
+     * Matcher for a single groupId or artifactId pattern, which avoids the regex engine for literals and prefixes.
+     */
+    private static final class NameMatcher {
+
+        static final int LITERAL = 0;
+        static final int PREFIX = 1;
+        static final int REGEX = 2;
+
+        private final int type;
+        private final String literal;
+        private final Pattern pattern;
+
+        private NameMatcher(int type, String literal, Pattern pattern) {
+            this.type = type;
+            this.literal = literal;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Recognizes the patterns created from the configuration, where "." is escaped and "*" became ".*".
+         */
+        static NameMatcher compile(Pattern pattern) {
+            if (pattern == null) {
+                return new NameMatcher(PREFIX, "", null);
+            }
+
+            String regex = pattern.pattern();
+            StringBuilder literal = new StringBuilder();
+            boolean wildcardAtEnd = false;
+
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\' && i + 1 < regex.length() && regex.charAt(i + 1) == '.') {
+                    literal.append('.');
+                    i++;
+                } else if (c == '.' && i + 1 < regex.length() && regex.charAt(i + 1) == '*' && i + 2 == regex.length()) {
+                    wildcardAtEnd = true;
+                    i++;
+                } else if ("\\.[]{}()*+?^$|".indexOf(c) >= 0) {
+                    return new NameMatcher(REGEX, null, pattern);
+                } else {
+                    literal.append(c);
+                }
+            }
+
+            return new NameMatcher(wildcardAtEnd ? PREFIX : LITERAL, literal.toString(), null);
+        }
+
+        boolean matches(String name) {
+            switch (this.type) {
+                case LITERAL:
+                    return this.literal.equals(name);
+                case PREFIX:
+                    return name.startsWith(this.literal);
+                default:
+                    return this.pattern.matcher(name).matches();
+            }
+        }
+    }
+
+}
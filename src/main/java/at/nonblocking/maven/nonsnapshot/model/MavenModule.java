@@ -17,7 +17,9 @@ package at.nonblocking.maven.nonsnapshot.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a Maven module in the build tree
@@ -30,14 +32,19 @@ public class MavenModule extends MavenArtifact {
 
     private boolean insertVersionTag;
     private int versionLocation;
+    private int versionColumn;
+    private String versionProperty;
 
     private MavenArtifact parent;
     private int parentVersionLocation;
+    private int parentVersionColumn;
 
     private List<MavenModule> children = new ArrayList<MavenModule>();
 
     private List<MavenModuleDependency> dependencies = new ArrayList<MavenModuleDependency>();
 
+    private Map<String, MavenModuleProperty> properties = new LinkedHashMap<String, MavenModuleProperty>();
+
     private String newVersion;
 
     private boolean dirty;
@@ -71,6 +78,28 @@ public class MavenModule extends MavenArtifact {
         this.versionLocation = versionLocation;
     }
 
+    /**
+     * @return int The column where the version value starts or 0 if unknown
+     */
+    public int getVersionColumn() {
+        return versionColumn;
+    }
+
+    public void setVersionColumn(int versionColumn) {
+        this.versionColumn = versionColumn;
+    }
+
+    /**
+     * @return String The property the version is taken from (CI-friendly versions) or null
+     */
+    public String getVersionProperty() {
+        return versionProperty;
+    }
+
+    public void setVersionProperty(String versionProperty) {
+        this.versionProperty = versionProperty;
+    }
+
     public int getParentVersionLocation() {
         return parentVersionLocation;
     }
@@ -79,6 +108,14 @@ public class MavenModule extends MavenArtifact {
         this.parentVersionLocation = parentVersionLocation;
     }
 
+    public int getParentVersionColumn() {
+        return parentVersionColumn;
+    }
+
+    public void setParentVersionColumn(int parentVersionColumn) {
+        this.parentVersionColumn = parentVersionColumn;
+    }
+
     public MavenArtifact getParent() {
         return parent;
     }
@@ -103,6 +140,10 @@ public class MavenModule extends MavenArtifact {
         return dependencies;
     }
 
+    public Map<String, MavenModuleProperty> getProperties() {
+        return properties;
+    }
+
     public String getNewVersion() {
         return newVersion;
     }
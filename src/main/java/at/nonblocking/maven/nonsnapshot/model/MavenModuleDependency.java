@@ -24,6 +24,7 @@ package at.nonblocking.maven.nonsnapshot.model;
 public class MavenModuleDependency {
 
     private int versionLocation;
+    private int versionColumn;
     private MavenArtifact artifact;
 
     public MavenModuleDependency(int versionLocation, MavenArtifact artifact) {
@@ -31,6 +32,12 @@ public class MavenModuleDependency {
         this.artifact = artifact;
     }
 
+    public MavenModuleDependency(int versionLocation, int versionColumn, MavenArtifact artifact) {
+        this.versionLocation = versionLocation;
+        this.versionColumn = versionColumn;
+        this.artifact = artifact;
+    }
+
     public int getVersionLocation() {
         return versionLocation;
     }
@@ -39,6 +46,17 @@ public class MavenModuleDependency {
         this.versionLocation = versionLocation;
     }
 
+    /**
+     * @return int The column where the version value starts or 0 if unknown
+     */
+    public int getVersionColumn() {
+        return versionColumn;
+    }
+
+    public void setVersionColumn(int versionColumn) {
+        this.versionColumn = versionColumn;
+    }
+
     public MavenArtifact getArtifact() {
         return artifact;
     }
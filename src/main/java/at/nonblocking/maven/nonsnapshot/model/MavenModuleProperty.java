@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.nonblocking.maven.nonsnapshot.model;
+
+
+/**
+ * A property defined in the POM of a Maven module
+ *
+ * @author Juergen Kofler
+ */
+public class MavenModuleProperty {
+
+    private String name;
+    private String value;
+    private int location;
+    private int column;
+
+    private String newValue;
+
+    public MavenModuleProperty(String name, String value, int location) {
+        this.name = name;
+        this.value = value;
+        this.location = location;
+    }
+
+    public MavenModuleProperty(String name, String value, int location, int column) {
+        this(name, value, location);
+        this.column = column;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getLocation() {
+        return location;
+    }
+
+    /**
+     * @return int The column where the value starts or 0 if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    public String getNewValue() {
+        return newValue;
+    }
+
+    public void setNewValue(String newValue) {
+        this.newValue = newValue;
+    }
+}
@@ -0,0 +1,62 @@
+package at.nonblocking.maven.nonsnapshot;
+
+import static junit.framework.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.execution.BuildFailure;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class BuildTimeRecorderTest {
+
+    @Test
+    public void testRecordBuildTimes() throws Exception {
+        File executionRoot = new File("target/buildtimes");
+        executionRoot.mkdirs();
+        File buildTimesFile = new File(executionRoot, BuildTimeHistory.BUILD_TIMES_FILE_NAME);
+
+        Map<String, Long> previousBuildTimes = new HashMap<>();
+        previousBuildTimes.put("at.nonblocking:test1", 3000L);
+        previousBuildTimes.put("at.nonblocking:test3", 500L);
+        BuildTimeHistory.store(buildTimesFile, previousBuildTimes);
+
+        MavenProject project1 = createProject("test1");
+        MavenProject project2 = createProject("test2");
+        MavenProject project3 = createProject("test3");
+
+        MavenExecutionResult result = mock(MavenExecutionResult.class);
+        when(result.getBuildSummary(project1)).thenReturn(new BuildSuccess(project1, 1000L));
+        when(result.getBuildSummary(project2)).thenReturn(new BuildSuccess(project2, 2000L));
+        when(result.getBuildSummary(project3)).thenReturn(new BuildFailure(project3, 100L, new Exception()));
+
+        MavenSession session = mock(MavenSession.class);
+        when(session.getResult()).thenReturn(result);
+        when(session.getExecutionRootDirectory()).thenReturn(executionRoot.getAbsolutePath());
+        when(session.getProjects()).thenReturn(Arrays.asList(project1, project2, project3));
+
+        new BuildTimeRecorder().afterSessionEnd(session);
+
+        Map<String, Long> buildTimes = BuildTimeHistory.load(buildTimesFile);
+
+        assertEquals(3, buildTimes.size());
+        assertEquals(Long.valueOf(2000L), buildTimes.get("at.nonblocking:test1"));
+        assertEquals(Long.valueOf(2000L), buildTimes.get("at.nonblocking:test2"));
+        assertEquals(Long.valueOf(500L), buildTimes.get("at.nonblocking:test3"));
+    }
+
+    private MavenProject createProject(String artifactId) {
+        MavenProject project = new MavenProject();
+        project.setGroupId("at.nonblocking");
+        project.setArtifactId(artifactId);
+        return project;
+    }
+
+}
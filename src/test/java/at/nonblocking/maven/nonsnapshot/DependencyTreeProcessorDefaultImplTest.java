@@ -3,7 +3,13 @@ package at.nonblocking.maven.nonsnapshot;
 import static junit.framework.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
@@ -11,6 +17,7 @@ import at.nonblocking.maven.nonsnapshot.impl.DependencyTreeProcessorDefaultImpl;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import at.nonblocking.maven.nonsnapshot.model.MavenModule;
 import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+import at.nonblocking.maven.nonsnapshot.model.UpdatedUpstreamMavenArtifact;
 
 public class DependencyTreeProcessorDefaultImplTest {
 
@@ -108,4 +115,571 @@ public class DependencyTreeProcessorDefaultImplTest {
 
         dependencyTreeProcessor.printMavenModulesTree(artifacts, System.out);
     }
+
+    @Test
+    public void testBuildDependencyTreeFirstModuleWins() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test1", "2.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+
+        wsArtifact3.setParent(new MavenArtifact("at.nonblocking.at", "test1", "2.0.0"));
+        wsArtifact3.getDependencies().add(new MavenModuleDependency(0, new MavenArtifact("at.nonblocking.at", "test1", "2.0.0")));
+
+        List<MavenModule> artifacts = new ArrayList<>();
+        artifacts.add(wsArtifact1);
+        artifacts.add(wsArtifact2);
+        artifacts.add(wsArtifact3);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        dependencyTreeProcessor.buildDependencyTree(artifacts);
+
+        assertSame(wsArtifact1, wsArtifact3.getParent());
+        assertSame(wsArtifact1, wsArtifact3.getDependencies().get(0).getArtifact());
+        assertEquals(1, wsArtifact1.getChildren().size());
+        assertEquals(0, wsArtifact2.getChildren().size());
+    }
+
+    @Test
+    public void testBuildDependencyTreeScalesLinearly() {
+        long accesses2000 = countBuildDependencyTreeAccesses(2000);
+        long accesses10000 = countBuildDependencyTreeAccesses(10000);
+
+        assertScalesLinearly(accesses2000, accesses10000);
+    }
+
+    @Test
+    public void testMarkAllArtifactsDirtyWithDirtyDependenciesScalesLinearly() {
+        long accesses2000 = countMarkAllArtifactsDirtyWithDirtyDependenciesAccesses(2000);
+        long accesses10000 = countMarkAllArtifactsDirtyWithDirtyDependenciesAccesses(10000);
+
+        assertScalesLinearly(accesses2000, accesses10000);
+    }
+
+    @Test
+    public void testMarkAllArtifactsDirtyWithDirtyParentAndUpstreamDependency() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "parent", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test3", "1.0.0");
+
+        //2 -> parent 1 -> dependency 4 -> upstream (updated)
+        wsArtifact2.setParent(wsArtifact1);
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(0, wsArtifact4));
+        wsArtifact4.getDependencies().add(new MavenModuleDependency(0, new UpdatedUpstreamMavenArtifact("at.nonblocking", "upstream", "1.0.0", "1.0.1")));
+
+        List<MavenModule> artifacts = new ArrayList<>();
+        artifacts.add(wsArtifact1);
+        artifacts.add(wsArtifact2);
+        artifacts.add(wsArtifact3);
+        artifacts.add(wsArtifact4);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        boolean changes1 = dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts);
+        boolean changes2 = dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts);
+
+        assertTrue(changes1);
+        assertFalse(changes2);
+
+        assertTrue(wsArtifact1.isDirty());
+        assertTrue(wsArtifact2.isDirty());
+        assertFalse(wsArtifact3.isDirty());
+        assertTrue(wsArtifact4.isDirty());
+    }
+
+    @Test(timeout = 10000)
+    public void testMarkAllArtifactsDirtyWithDirtyDependenciesLongChain() {
+        List<MavenModule> artifacts = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            MavenModule module = new MavenModule(null, "at.nonblocking.at", "test" + i, "1.0.0");
+            if (i > 0) {
+                artifacts.get(i - 1).getDependencies().add(new MavenModuleDependency(0, module));
+            }
+            artifacts.add(module);
+        }
+        artifacts.get(artifacts.size() - 1).setDirty(true);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new SilentDependencyTreeProcessor();
+
+        assertTrue(dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts));
+
+        for (MavenModule module : artifacts) {
+            assertTrue(module.isDirty());
+        }
+    }
+
+    @Test
+    public void testSortInDependencyOrder() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "parent", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test4", "1.0.0");
+
+        //1 -> 2 -> parent 3, 4 independent
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(0, wsArtifact2));
+        wsArtifact2.setParent(wsArtifact3);
+
+        List<MavenModule> artifacts = Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3, wsArtifact4);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        List<MavenModule> sortedModules = dependencyTreeProcessor.sortInDependencyOrder(artifacts);
+
+        assertEquals(Arrays.asList(wsArtifact3, wsArtifact2, wsArtifact1, wsArtifact4), sortedModules);
+        assertTrue(dependencyTreeProcessor.findDependencyCycles(artifacts).isEmpty());
+    }
+
+    @Test
+    public void testFindDependencyCycles() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test3", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test4", "1.0.0");
+        MavenModule wsArtifact5 = new MavenModule(null, "at.nonblocking.at", "test5", "1.0.0");
+
+        //1 -> 2 -> 3 -> 1, 4 -> 2, 5 -> 5
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(0, wsArtifact2));
+        wsArtifact2.getDependencies().add(new MavenModuleDependency(0, wsArtifact3));
+        wsArtifact3.getDependencies().add(new MavenModuleDependency(0, wsArtifact1));
+        wsArtifact4.getDependencies().add(new MavenModuleDependency(0, wsArtifact2));
+        wsArtifact5.getDependencies().add(new MavenModuleDependency(0, wsArtifact5));
+
+        List<MavenModule> artifacts = Arrays.asList(wsArtifact4, wsArtifact1, wsArtifact2, wsArtifact3, wsArtifact5);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        List<List<MavenModule>> cycles = dependencyTreeProcessor.findDependencyCycles(artifacts);
+
+        assertEquals(2, cycles.size());
+        assertEquals(Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3), cycles.get(0));
+        assertEquals(Arrays.asList(wsArtifact5), cycles.get(1));
+
+        List<MavenModule> sortedModules = dependencyTreeProcessor.sortInDependencyOrder(artifacts);
+
+        assertEquals(Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3, wsArtifact4, wsArtifact5), sortedModules);
+
+        wsArtifact3.setDirty(true);
+        assertTrue(dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts));
+        assertTrue(wsArtifact1.isDirty());
+        assertTrue(wsArtifact2.isDirty());
+        assertTrue(wsArtifact4.isDirty());
+        assertFalse(wsArtifact5.isDirty());
+    }
+
+    @Test
+    public void testParallelPropagationEqualsSequentialOnRandomGraphs() {
+        Random random = new Random(4711);
+
+        for (int run = 0; run < 30; run++) {
+            int moduleCount = 100 + random.nextInt(3000);
+            int maxDependencies = 1 + random.nextInt(10);
+            boolean allowCycles = run % 2 == 1;
+            long seed = random.nextLong();
+
+            List<MavenModule> sequentialModules = createRandomWorkspace(new Random(seed), moduleCount, maxDependencies, allowCycles);
+            List<MavenModule> parallelModules = createRandomWorkspace(new Random(seed), moduleCount, maxDependencies, allowCycles);
+
+            ReasonRecordingDependencyTreeProcessor sequentialProcessor = new ReasonRecordingDependencyTreeProcessor();
+            ReasonRecordingDependencyTreeProcessor parallelProcessor = new ReasonRecordingDependencyTreeProcessor();
+
+            boolean sequentialChanges = sequentialProcessor.markAllArtifactsDirtyWithDirtyDependencies(sequentialModules, false);
+            boolean parallelChanges = parallelProcessor.markAllArtifactsDirtyWithDirtyDependencies(parallelModules, true);
+
+            assertEquals(sequentialChanges, parallelChanges);
+            for (int i = 0; i < moduleCount; i++) {
+                assertEquals("Run " + run + ", module " + i, sequentialModules.get(i).isDirty(), parallelModules.get(i).isDirty());
+            }
+            assertEquals(sequentialProcessor.reasons, parallelProcessor.reasons);
+        }
+    }
+
+    @Test
+    public void testCalculateBuildWaves() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "parent", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test3", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test4", "1.0.0");
+        MavenModule wsArtifact5 = new MavenModule(null, "at.nonblocking.at", "test5", "1.0.0");
+        MavenModule wsArtifact6 = new MavenModule(null, "at.nonblocking.at", "test6", "1.0.0");
+        MavenModule wsArtifact7 = new MavenModule(null, "at.nonblocking.at", "test7", "1.0.0");
+
+        //2,3 -> parent 1, 4 -> 2 + 3, 5 <-> 6 -> 4, 7 independent
+        wsArtifact2.setParent(wsArtifact1);
+        wsArtifact3.setParent(wsArtifact1);
+        wsArtifact4.getDependencies().add(new MavenModuleDependency(0, wsArtifact2));
+        wsArtifact4.getDependencies().add(new MavenModuleDependency(0, wsArtifact3));
+        wsArtifact5.getDependencies().add(new MavenModuleDependency(0, wsArtifact6));
+        wsArtifact6.getDependencies().add(new MavenModuleDependency(0, wsArtifact5));
+        wsArtifact6.getDependencies().add(new MavenModuleDependency(0, wsArtifact4));
+
+        List<MavenModule> artifacts = Arrays.asList(wsArtifact7, wsArtifact6, wsArtifact5, wsArtifact4, wsArtifact3, wsArtifact2, wsArtifact1);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        List<List<MavenModule>> waves = dependencyTreeProcessor.calculateBuildWaves(artifacts);
+
+        assertEquals(4, waves.size());
+        assertEquals(Arrays.asList(wsArtifact7, wsArtifact1), waves.get(0));
+        assertEquals(Arrays.asList(wsArtifact3, wsArtifact2), waves.get(1));
+        assertEquals(Arrays.asList(wsArtifact4), waves.get(2));
+        assertEquals(Arrays.asList(wsArtifact6, wsArtifact5), waves.get(3));
+
+        // Modules not in the list are ignored
+        List<List<MavenModule>> wavesWithoutParent = dependencyTreeProcessor.calculateBuildWaves(Arrays.asList(wsArtifact2, wsArtifact3, wsArtifact4));
+
+        assertEquals(2, wavesWithoutParent.size());
+        assertEquals(Arrays.asList(wsArtifact2, wsArtifact3), wavesWithoutParent.get(0));
+    }
+
+    @Test
+    public void testCalculateBuildWavesWithBuildTimes() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test3", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test4", "1.0.0");
+
+        //2 -> 1, 3 and 4 independent
+        wsArtifact2.getDependencies().add(new MavenModuleDependency(0, wsArtifact1));
+
+        List<MavenModule> artifacts = Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3, wsArtifact4);
+
+        Map<String, Long> buildTimes = new HashMap<>();
+        buildTimes.put("at.nonblocking.at:test1", 1000L);
+        buildTimes.put("at.nonblocking.at:test2", 600000L);
+        buildTimes.put("at.nonblocking.at:test3", 500000L);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        List<List<MavenModule>> waves = dependencyTreeProcessor.calculateBuildWaves(artifacts, buildTimes);
+
+        // The long running module 3 is built in parallel to 2 instead of 1, module 4 (average time) goes along
+        assertEquals(2, waves.size());
+        assertEquals(Arrays.asList(wsArtifact1), waves.get(0));
+        assertEquals(Arrays.asList(wsArtifact2, wsArtifact3, wsArtifact4), waves.get(1));
+    }
+
+    @Test
+    public void testDirtyModuleTracker() {
+        MavenModule wsArtifact1 = new MavenModule(null, "at.nonblocking.at", "test1", "1.0.0");
+        MavenModule wsArtifact2 = new MavenModule(null, "at.nonblocking.at", "test2", "1.0.0");
+        MavenModule wsArtifact3 = new MavenModule(null, "at.nonblocking.at", "test3", "1.0.0");
+        MavenModule wsArtifact4 = new MavenModule(null, "at.nonblocking.at", "test4", "1.0.0");
+        MavenModule wsArtifact5 = new MavenModule(null, "at.nonblocking.at", "test5", "1.0.0");
+
+        //1 -> 2 -> 3, 1 -> 4, 5 independent
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(0, wsArtifact2));
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(0, wsArtifact4));
+        wsArtifact2.getDependencies().add(new MavenModuleDependency(0, wsArtifact3));
+        wsArtifact3.setDirty(true);
+        wsArtifact3.setNewVersion("1.0.1");
+        wsArtifact2.setNewVersion("1.0.1");
+        wsArtifact1.setNewVersion("1.0.1");
+
+        List<MavenModule> artifacts = Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3, wsArtifact4, wsArtifact5);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        DirtyModuleTracker tracker = dependencyTreeProcessor.createDirtyModuleTracker(artifacts, module -> "1.0.2");
+
+        assertTrue(wsArtifact1.isDirty());
+        assertTrue(wsArtifact2.isDirty());
+        assertFalse(wsArtifact4.isDirty());
+
+        List<MavenModule> changes1 = tracker.update(Arrays.asList(wsArtifact4), null);
+
+        assertEquals(Arrays.asList(wsArtifact4), changes1);
+        assertEquals("1.0.2", wsArtifact4.getNewVersion());
+
+        List<MavenModule> changes2 = tracker.update(null, Arrays.asList(wsArtifact3));
+
+        assertEquals(Arrays.asList(wsArtifact2, wsArtifact3), changes2);
+        assertTrue(wsArtifact1.isDirty());
+        assertFalse(wsArtifact2.isDirty());
+        assertFalse(wsArtifact3.isDirty());
+        assertNull(wsArtifact2.getNewVersion());
+        assertEquals("1.0.1", wsArtifact1.getNewVersion());
+
+        List<MavenModule> changes3 = tracker.update(Arrays.asList(wsArtifact5), Arrays.asList(wsArtifact4));
+
+        assertEquals(Arrays.asList(wsArtifact1, wsArtifact4, wsArtifact5), changes3);
+        assertFalse(wsArtifact1.isDirty());
+        assertTrue(wsArtifact5.isDirty());
+
+        assertTrue(tracker.update(null, Arrays.asList(wsArtifact1)).isEmpty());
+    }
+
+    @Test
+    public void testDirtyModuleTrackerEqualsFullPropagationOnRandomGraphs() {
+        Random random = new Random(815);
+
+        for (int run = 0; run < 20; run++) {
+            int moduleCount = 50 + random.nextInt(500);
+            List<MavenModule> artifacts = createRandomWorkspace(random, moduleCount, 1 + random.nextInt(4), run % 2 == 1);
+
+            DependencyTreeProcessor dependencyTreeProcessor = new SilentDependencyTreeProcessor();
+
+            List<MavenModule> seeds = new ArrayList<>();
+            for (MavenModule module : artifacts) {
+                if (module.isDirty()) {
+                    seeds.add(module);
+                }
+            }
+
+            DirtyModuleTracker tracker = dependencyTreeProcessor.createDirtyModuleTracker(artifacts, null);
+
+            for (int step = 0; step < 10; step++) {
+                List<MavenModule> newlyDirty = new ArrayList<>();
+                List<MavenModule> newlyClean = new ArrayList<>();
+                for (int j = 0; j < 3; j++) {
+                    MavenModule module = artifacts.get(random.nextInt(moduleCount));
+                    if (newlyClean.contains(module) || newlyDirty.contains(module)) {
+                        continue;
+                    }
+                    if (seeds.remove(module)) {
+                        newlyClean.add(module);
+                    } else {
+                        seeds.add(module);
+                        newlyDirty.add(module);
+                    }
+                }
+
+                tracker.update(newlyDirty, newlyClean);
+
+                // Compare with a full recomputation on a copy of the dirty state
+                boolean[] trackedDirty = new boolean[moduleCount];
+                for (int i = 0; i < moduleCount; i++) {
+                    trackedDirty[i] = artifacts.get(i).isDirty();
+                    artifacts.get(i).setDirty(seeds.contains(artifacts.get(i)));
+                }
+                dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts);
+                for (int i = 0; i < moduleCount; i++) {
+                    assertEquals("Run " + run + ", step " + step + ", module " + i, artifacts.get(i).isDirty(), trackedDirty[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return long The number of model accesses per module and edge
+     */
+    private long countBuildDependencyTreeAccesses(int moduleCount) {
+        AtomicLong accesses = new AtomicLong();
+        List<MavenModule> artifacts = createSyntheticWorkspace(moduleCount, 20, accesses);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new DependencyTreeProcessorDefaultImpl();
+
+        accesses.set(0);
+        dependencyTreeProcessor.buildDependencyTree(artifacts);
+        long accessCount = accesses.get();
+
+        assertEquals(moduleCount - 1, artifacts.get(0).getChildren().size());
+        for (MavenModule module : artifacts) {
+            for (MavenModuleDependency dependency : module.getDependencies()) {
+                assertTrue(dependency.getArtifact() instanceof MavenModule);
+            }
+        }
+
+        return accessCount / (moduleCount + countEdges(artifacts));
+    }
+
+    /**
+     * @return long The number of model accesses per module and edge
+     */
+    private long countMarkAllArtifactsDirtyWithDirtyDependenciesAccesses(int moduleCount) {
+        AtomicLong accesses = new AtomicLong();
+        List<MavenModule> artifacts = createSyntheticWorkspace(moduleCount, 20, accesses);
+
+        DependencyTreeProcessor dependencyTreeProcessor = new SilentDependencyTreeProcessor();
+        dependencyTreeProcessor.buildDependencyTree(artifacts);
+
+        artifacts.get(moduleCount / 50 * 49).setDirty(true);
+
+        boolean[] expectedDirty = calculateDirtyModulesNaive(artifacts);
+
+        accesses.set(0);
+        dependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifacts);
+        long accessCount = accesses.get();
+
+        for (int i = 0; i < artifacts.size(); i++) {
+            assertEquals(expectedDirty[i], artifacts.get(i).isDirty());
+        }
+
+        return accessCount / (moduleCount + countEdges(artifacts));
+    }
+
+    private int countEdges(List<MavenModule> artifacts) {
+        int edgeCount = 0;
+        for (MavenModule module : artifacts) {
+            edgeCount += module.getDependencies().size() + (module.getParent() != null ? 1 : 0);
+        }
+        return edgeCount;
+    }
+
+    private void assertScalesLinearly(long accesses2000, long accesses10000) {
+        // Linear: The same constant number of accesses per module and edge, a quadratic algorithm grows with the module count
+        assertTrue("2000 modules: " + accesses2000 + ", 10000 modules: " + accesses10000 + " accesses per module and edge",
+                accesses2000 <= 10 && accesses10000 <= accesses2000);
+    }
+
+    private List<MavenModule> createSyntheticWorkspace(int moduleCount, int dependencyCount, AtomicLong accesses) {
+        List<MavenModule> artifacts = new ArrayList<>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            MavenModule module = new CountingMavenModule("at.nonblocking.group" + (i % 100), "module" + i, accesses);
+            if (i > 0) {
+                module.setParent(new CountingMavenArtifact("at.nonblocking.group0", "module0", accesses));
+            }
+            // Depend only on modules with a lower index to avoid cycles
+            for (int j = 1; j <= dependencyCount && j <= i; j++) {
+                int dependencyIndex = (i * 31 + j * 17) % i;
+                module.getDependencies().add(new CountingMavenModuleDependency(
+                        new CountingMavenArtifact("at.nonblocking.group" + (dependencyIndex % 100), "module" + dependencyIndex, accesses), accesses));
+            }
+            artifacts.add(module);
+        }
+        return artifacts;
+    }
+
+    private boolean[] calculateDirtyModulesNaive(List<MavenModule> artifacts) {
+        // Dependencies have a lower index in the synthetic workspace, so one pass in order is enough
+        Map<MavenModule, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < artifacts.size(); i++) {
+            ids.put(artifacts.get(i), i);
+        }
+
+        boolean[] dirty = new boolean[artifacts.size()];
+        for (int i = 0; i < artifacts.size(); i++) {
+            MavenModule module = artifacts.get(i);
+            dirty[i] = module.isDirty() || (module.getParent() instanceof MavenModule && dirty[ids.get(module.getParent())]);
+            for (MavenModuleDependency dependency : module.getDependencies()) {
+                dirty[i] |= dirty[ids.get(dependency.getArtifact())];
+            }
+        }
+        return dirty;
+    }
+
+    private List<MavenModule> createRandomWorkspace(Random random, int moduleCount, int maxDependencies, boolean allowCycles) {
+        List<MavenModule> artifacts = new ArrayList<>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            artifacts.add(new MavenModule(null, "at.nonblocking.at", "module" + i, "1.0.0"));
+        }
+
+        for (int i = 0; i < moduleCount; i++) {
+            MavenModule module = artifacts.get(i);
+            int bound = allowCycles ? moduleCount : i;
+            if (bound == 0) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                module.setParent(artifacts.get(random.nextInt(bound)));
+            }
+            int dependencyCount = random.nextInt(maxDependencies + 1);
+            for (int j = 0; j < dependencyCount; j++) {
+                module.getDependencies().add(new MavenModuleDependency(0, artifacts.get(random.nextInt(bound))));
+            }
+            if (random.nextInt(50) == 0) {
+                module.setDirty(true);
+            }
+        }
+
+        return artifacts;
+    }
+
+    private static class ReasonRecordingDependencyTreeProcessor extends DependencyTreeProcessorDefaultImpl {
+
+        private final List<String> reasons = new ArrayList<>();
+
+        @Override
+        protected void logMarkedDirty(MavenModule mavenModule, MavenModule dirtyModule) {
+            this.reasons.add(mavenModule.getArtifactId() + " <- " + dirtyModule.getArtifactId());
+        }
+    }
+
+    private static class SilentDependencyTreeProcessor extends DependencyTreeProcessorDefaultImpl {
+
+        @Override
+        protected void logMarkedDirty(MavenModule mavenModule, MavenModule dirtyModule) {
+        }
+    }
+
+    /**
+     * Counts the reads of the coordinates and the graph state, to check the complexity without measuring time.
+     */
+    private static class CountingMavenModule extends MavenModule {
+
+        private final AtomicLong accesses;
+
+        CountingMavenModule(String groupId, String artifactId, AtomicLong accesses) {
+            super(null, groupId, artifactId, "1.0.0");
+            this.accesses = accesses;
+        }
+
+        @Override
+        public String getGroupId() {
+            this.accesses.incrementAndGet();
+            return super.getGroupId();
+        }
+
+        @Override
+        public String getArtifactId() {
+            this.accesses.incrementAndGet();
+            return super.getArtifactId();
+        }
+
+        @Override
+        public MavenArtifact getParent() {
+            this.accesses.incrementAndGet();
+            return super.getParent();
+        }
+
+        @Override
+        public List<MavenModuleDependency> getDependencies() {
+            this.accesses.incrementAndGet();
+            return super.getDependencies();
+        }
+
+        @Override
+        public boolean isDirty() {
+            this.accesses.incrementAndGet();
+            return super.isDirty();
+        }
+    }
+
+    private static class CountingMavenArtifact extends MavenArtifact {
+
+        private final AtomicLong accesses;
+
+        CountingMavenArtifact(String groupId, String artifactId, AtomicLong accesses) {
+            super(groupId, artifactId, "1.0.0");
+            this.accesses = accesses;
+        }
+
+        @Override
+        public String getGroupId() {
+            this.accesses.incrementAndGet();
+            return super.getGroupId();
+        }
+
+        @Override
+        public String getArtifactId() {
+            this.accesses.incrementAndGet();
+            return super.getArtifactId();
+        }
+    }
+
+    private static class CountingMavenModuleDependency extends MavenModuleDependency {
+
+        private final AtomicLong accesses;
+
+        CountingMavenModuleDependency(MavenArtifact artifact, AtomicLong accesses) {
+            super(0, artifact);
+            this.accesses = accesses;
+        }
+
+        @Override
+        public MavenArtifact getArtifact() {
+            this.accesses.incrementAndGet();
+            return super.getArtifact();
+        }
+    }
 }
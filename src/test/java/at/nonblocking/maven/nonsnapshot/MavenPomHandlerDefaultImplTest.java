@@ -6,6 +6,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
@@ -62,6 +64,25 @@ public class MavenPomHandlerDefaultImplTest {
         assertEquals(9, wsArtifact.getParentVersionLocation());
     }
 
+    @Test
+    public void testReadArtifactSharedCoordinates() throws Exception {
+        File pomFile1 = new File("target/test-pom.xml");
+        IOUtil.copy(new FileReader("src/test/resources/test-pom.xml"), new FileOutputStream(pomFile1));
+        File pomFile2 = new File("target/test-pom-parent.xml");
+        IOUtil.copy(new FileReader("src/test/resources/test-pom-parent.xml"), new FileOutputStream(pomFile2));
+
+        MavenPomHandler pomHandler = new MavenPomHandlerDefaultImpl();
+
+        MavenModule wsArtifact1 = pomHandler.readArtifact(pomFile1);
+        MavenModule wsArtifact2 = pomHandler.readArtifact(pomFile2);
+
+        assertSame(wsArtifact1.getGroupId(), wsArtifact2.getGroupId());
+        assertSame(wsArtifact1.getArtifactId(), wsArtifact2.getArtifactId());
+        assertSame(wsArtifact1.getGroupId(), wsArtifact2.getParent().getGroupId());
+        assertSame(wsArtifact1.getDependencies().get(0).getArtifact().getVersion(), wsArtifact2.getDependencies().get(0).getArtifact().getVersion());
+        assertNotSame(wsArtifact1.getDependencies().get(0).getArtifact(), wsArtifact2.getDependencies().get(0).getArtifact());
+    }
+
     @Test
     public void testReadAndUpdateArtifact() throws Exception {
         File pomFile = new File("target/test-pom.xml");
@@ -114,6 +135,97 @@ public class MavenPomHandlerDefaultImplTest {
         assertEquals("3.3.3-456", pom.getParent().getVersion());
     }
 
+    @Test
+    public void testReadAndUpdateArtifactProperty() throws Exception {
+        File pomFile = new File("target/test-pom-properties.xml");
+        IOUtil.copy(new FileReader("src/test/resources/test-pom-properties.xml"), new FileOutputStream(pomFile));
+
+        MavenPomHandler pomHandler = new MavenPomHandlerDefaultImpl();
+
+        MavenModule wsArtifact = pomHandler.readArtifact(pomFile);
+
+        assertEquals(2, wsArtifact.getProperties().size());
+        assertEquals("1.2.3", wsArtifact.getProperties().get("lib.version").getValue());
+        assertEquals(13, wsArtifact.getProperties().get("lib.version").getLocation());
+        assertEquals("${lib.version}", wsArtifact.getDependencies().get(0).getArtifact().getVersion());
+
+        wsArtifact.setDirty(true);
+        wsArtifact.setNewVersion("1.0.1-123");
+        wsArtifact.getProperties().get("lib.version").setNewValue("1.3.0");
+
+        pomHandler.updateArtifact(wsArtifact);
+
+        Model pom = new MavenXpp3Reader().read(new FileInputStream(pomFile));
+
+        assertEquals("1.0.1-123", pom.getVersion());
+        assertEquals("1.3.0", pom.getProperties().getProperty("lib.version"));
+        assertEquals("UTF-8", pom.getProperties().getProperty("project.build.sourceEncoding"));
+        assertEquals("${lib.version}", pom.getDependencies().get(0).getVersion());
+    }
+
+    @Test
+    public void testReadAndUpdateArtifactVersionProperty() throws Exception {
+        File pomFile = new File("target/test-pom-parent.xml");
+        IOUtil.copy(new FileReader("src/test/resources/test-pom-parent.xml"), new FileOutputStream(pomFile));
+
+        MavenPomHandler pomHandler = new MavenPomHandlerDefaultImpl();
+
+        MavenModule wsArtifact = pomHandler.readArtifact(pomFile);
+
+        wsArtifact.setDirty(true);
+        wsArtifact.setVersionProperty("revision");
+        wsArtifact.setNewVersion("1.1.1-12345");
+
+        MavenModule parentArtifact = new MavenModule(null, "at.nonblocking.at", "parent-test", "1.4.5-123");
+        parentArtifact.setDirty(true);
+        parentArtifact.setVersionProperty("revision");
+        parentArtifact.setNewVersion("3.3.3-456");
+
+        wsArtifact.setParent(parentArtifact);
+
+        pomHandler.updateArtifact(wsArtifact);
+
+        Model pom = new MavenXpp3Reader().read(new FileInputStream(pomFile));
+
+        // Own version comes from the version properties file, the literal parent version is still updated
+        assertEquals("1.0.0-SNAPSHOT", pom.getVersion());
+        assertEquals("3.3.3-456", pom.getParent().getVersion());
+    }
+
+    @Test
+    public void testUpdateArtifactPreservesEncodingAndLineSeparators() throws Exception {
+        String pomTemplate = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\r\n"
+                + "<project>\r\n"
+                + "  <modelVersion>4.0.0</modelVersion>\r\n"
+                + "  <groupId>at.nonblocking</groupId>\r\n"
+                + "  <artifactId>test-crlf</artifactId>\r\n"
+                + "  <version>%s</version>\r\n"
+                + "  <description>Gr\u00fc\u00dfe</description>\r\n"
+                + "  <dependencies>\r\n"
+                + "    <dependency><groupId>at.nonblocking</groupId><artifactId>test2</artifactId><version>%s</version></dependency>\r\n"
+                + "  </dependencies>\r\n"
+                + "</project>\r\n";
+
+        File pomFile = new File("target/test-pom-crlf.xml");
+        Files.write(pomFile.toPath(), String.format(pomTemplate, "1.0.0-SNAPSHOT", "2.0.0-1").getBytes(StandardCharsets.ISO_8859_1));
+
+        MavenPomHandler pomHandler = new MavenPomHandlerDefaultImpl();
+
+        MavenModule wsArtifact = pomHandler.readArtifact(pomFile);
+        wsArtifact.setDirty(true);
+        wsArtifact.setNewVersion("1.0.0-123");
+
+        MavenModule dependencyArtifact = new MavenModule(null, "at.nonblocking", "test2", "2.0.0-1");
+        dependencyArtifact.setDirty(true);
+        dependencyArtifact.setNewVersion("2.0.0-123");
+        wsArtifact.getDependencies().get(0).setArtifact(dependencyArtifact);
+
+        pomHandler.updateArtifact(wsArtifact);
+
+        assertEquals(String.format(pomTemplate, "1.0.0-123", "2.0.0-123"),
+                new String(Files.readAllBytes(pomFile.toPath()), StandardCharsets.ISO_8859_1));
+    }
+
     @Test
     public void testReadAndUpdateArtifactWithNoVersion() throws Exception {
         File pomFile = new File("target/test-pom-noversion.xml");
@@ -1,14 +1,18 @@
 package at.nonblocking.maven.nonsnapshot;
 
 import at.nonblocking.maven.nonsnapshot.impl.ModuleTraverserDefaultImpl;
+import org.apache.maven.model.InputSource;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3ReaderEx;
 import org.apache.maven.project.MavenProject;
 import org.junit.Test;
 
 import static junit.framework.Assert.*;
 
 import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -52,4 +56,82 @@ public class ModuleTraverserDefaultImplTest {
         assertEquals("project2", mavenModels.get(3).getArtifactId());
         assertEquals("module3", mavenModels.get(4).getArtifactId());
     }
+
+    @Test
+    public void readModulesReferencedTwiceTest() {
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setFile(new File("src/test/resources/testworkspace/project1/pom.xml"));
+
+        ModuleTraverser moduleTraverser = new ModuleTraverserDefaultImpl();
+
+        Profile activeProfile = new Profile();
+        activeProfile.setId("bar");
+        List<Model> mavenModels = moduleTraverser.findAllModules(mavenProject, Arrays.asList(activeProfile));
+
+        assertNotNull(mavenModels);
+        assertEquals(5, mavenModels.size());
+
+        assertEquals("project1", mavenModels.get(0).getArtifactId());
+        assertEquals("module1", mavenModels.get(1).getArtifactId());
+        assertEquals("module2", mavenModels.get(2).getArtifactId());
+        assertEquals("project2", mavenModels.get(3).getArtifactId());
+        assertEquals("module3", mavenModels.get(4).getArtifactId());
+    }
+
+    @Test
+    public void readModulesFromReactorTest() throws Exception {
+        File pomFile = new File("src/test/resources/testworkspace/project1/module1/pom.xml");
+        Model reactorModel = new MavenXpp3ReaderEx().read(new FileReader(pomFile), false, new InputSource());
+
+        MavenProject reactorProject = new MavenProject(reactorModel);
+        reactorProject.setFile(pomFile);
+        reactorProject.setOriginalModel(reactorModel);
+
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setFile(new File("src/test/resources/testworkspace/project1/pom.xml"));
+
+        ModuleTraverser moduleTraverser = new ModuleTraverserDefaultImpl();
+
+        List<Model> mavenModels = new ArrayList<>();
+        moduleTraverser.findAllModules(mavenProject, null, Arrays.asList(reactorProject), mavenModels::add);
+
+        assertNotNull(mavenModels);
+        assertEquals(4, mavenModels.size());
+
+        assertEquals("project1", mavenModels.get(0).getArtifactId());
+        assertSame(reactorModel, mavenModels.get(1));
+        assertEquals(pomFile.getCanonicalFile(), mavenModels.get(1).getPomFile().getCanonicalFile());
+        assertEquals("module2", mavenModels.get(2).getArtifactId());
+        assertEquals("project2", mavenModels.get(3).getArtifactId());
+    }
+
+    @Test
+    public void scanForModulesTest() {
+        ModuleTraverser moduleTraverser = new ModuleTraverserDefaultImpl();
+
+        List<Model> mavenModels = new ArrayList<>();
+        moduleTraverser.scanForModules(new File("src/test/resources/testworkspace"), null, null, model -> model, mavenModels::add);
+
+        assertEquals(5, mavenModels.size());
+
+        assertEquals("project1", mavenModels.get(0).getArtifactId());
+        assertEquals("module1", mavenModels.get(1).getArtifactId());
+        assertEquals("module2", mavenModels.get(2).getArtifactId());
+        assertEquals("module3", mavenModels.get(3).getArtifactId());
+        assertEquals("project2", mavenModels.get(4).getArtifactId());
+    }
+
+    @Test
+    public void scanForModulesIncludesExcludesTest() {
+        ModuleTraverser moduleTraverser = new ModuleTraverserDefaultImpl();
+
+        List<Model> mavenModels = new ArrayList<>();
+        moduleTraverser.scanForModules(new File("src/test/resources/testworkspace"),
+                Arrays.asList("project1/*"), Arrays.asList("project1/module2"), model -> model, mavenModels::add);
+
+        assertEquals(2, mavenModels.size());
+
+        assertEquals("module1", mavenModels.get(0).getArtifactId());
+        assertEquals("module3", mavenModels.get(1).getArtifactId());
+    }
 }
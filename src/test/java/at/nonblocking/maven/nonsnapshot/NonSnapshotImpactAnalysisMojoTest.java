@@ -0,0 +1,198 @@
+package at.nonblocking.maven.nonsnapshot;
+
+import static junit.framework.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import at.nonblocking.maven.nonsnapshot.impl.DependencyTreeProcessorDefaultImpl;
+import at.nonblocking.maven.nonsnapshot.impl.UpstreamDependencyHandlerDefaultImpl;
+import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
+import at.nonblocking.maven.nonsnapshot.model.MavenModule;
+import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+import at.nonblocking.maven.nonsnapshot.model.VersionGroup;
+
+public class NonSnapshotImpactAnalysisMojoTest {
+
+    private NonSnapshotImpactAnalysisMojo nonSnapshotMojo = new NonSnapshotImpactAnalysisMojo();
+    private ModuleTraverser mockModuleTraverser = mock(ModuleTraverser.class);
+    private MavenPomHandler mockMavenPomHandler = mock(MavenPomHandler.class);
+    private ScmHandler mockScmHandler = mock(ScmHandler.class);
+
+    private Model model1 = new Model();
+    private Model model2 = new Model();
+    private Model model3 = new Model();
+    private Model model4 = new Model();
+
+    private MavenModule wsArtifact1 = new MavenModule(new File("target/impact/pom.xml"), "nonblocking.at", "parent", "1.0.0-1234");
+    private MavenModule wsArtifact2 = new MavenModule(new File("target/impact/module1/pom.xml"), "nonblocking.at", "module1", "1.0.0-1234");
+    private MavenModule wsArtifact3 = new MavenModule(new File("target/impact/module2/pom.xml"), "nonblocking.at", "module2", "1.0.0-1234");
+    private MavenModule wsArtifact4 = new MavenModule(new File("target/impact/module10/pom.xml"), "nonblocking.at", "module10", "1.0.0-1234");
+
+    @Before
+    public void setupMojo() {
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setFile(new File("target/impact/pom.xml"));
+        this.nonSnapshotMojo.setMavenProject(mavenProject);
+
+        this.nonSnapshotMojo.setBaseVersion("1.0.13");
+        this.nonSnapshotMojo.setModuleTraverser(this.mockModuleTraverser);
+        this.nonSnapshotMojo.setDependencyTreeProcessor(new DependencyTreeProcessorDefaultImpl());
+        this.nonSnapshotMojo.setMavenPomHandler(this.mockMavenPomHandler);
+        this.nonSnapshotMojo.setScmHandler(this.mockScmHandler);
+        this.nonSnapshotMojo.setUpstreamDependencyHandler(new UpstreamDependencyHandlerDefaultImpl());
+
+        // module2 -> module1 -> parent, module10 independent
+        this.wsArtifact2.setParent(this.wsArtifact1);
+        this.wsArtifact3.getDependencies().add(new MavenModuleDependency(0, this.wsArtifact2));
+
+        mockFindAllModules(this.model1, this.model2, this.model3, this.model4);
+        when(this.mockMavenPomHandler.readArtifact(this.model1)).thenReturn(this.wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(this.model2)).thenReturn(this.wsArtifact2);
+        when(this.mockMavenPomHandler.readArtifact(this.model3)).thenReturn(this.wsArtifact3);
+        when(this.mockMavenPomHandler.readArtifact(this.model4)).thenReturn(this.wsArtifact4);
+    }
+
+    @Test
+    public void testImpactAnalysis() throws Exception {
+        File changedFiles = writeChangedFiles("module1/src/main/java/Foo.java", "../other/README.md", "", "module1");
+
+        this.nonSnapshotMojo.setChangedFiles(changedFiles.getPath());
+
+        this.nonSnapshotMojo.execute();
+
+        assertFalse(this.wsArtifact1.isDirty());
+        assertTrue(this.wsArtifact2.isDirty());
+        assertTrue(this.wsArtifact3.isDirty());
+        assertFalse(this.wsArtifact4.isDirty());
+
+        assertNull(this.wsArtifact2.getNewVersion());
+        verifyZeroInteractions(this.mockScmHandler);
+        verify(this.mockMavenPomHandler, never()).updateArtifact(any(MavenModule.class));
+    }
+
+    @Test
+    public void testImpactAnalysisRootModule() throws Exception {
+        File changedFiles = writeChangedFiles("pom.xml", "module10x/Bar.java");
+
+        this.nonSnapshotMojo.setChangedFiles(changedFiles.getPath());
+
+        this.nonSnapshotMojo.execute();
+
+        assertTrue(this.wsArtifact1.isDirty());
+        assertTrue(this.wsArtifact2.isDirty());
+        assertTrue(this.wsArtifact3.isDirty());
+        assertFalse(this.wsArtifact4.isDirty());
+    }
+
+    @Test
+    public void testImpactAnalysisSymlinkedBaseDir() throws Exception {
+        File changedFiles = writeChangedFiles("module1/src/main/java/Foo.java");
+
+        Path link = new File("target/impact-link").toPath();
+        Files.deleteIfExists(link);
+        try {
+            Files.createSymbolicLink(link, new File("impact").toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setFile(new File("target/impact-link/pom.xml"));
+        this.nonSnapshotMojo.setMavenProject(mavenProject);
+        this.nonSnapshotMojo.setChangedFiles(changedFiles.getPath());
+
+        this.nonSnapshotMojo.execute();
+
+        assertTrue(this.wsArtifact2.isDirty());
+        assertTrue(this.wsArtifact3.isDirty());
+        assertFalse(this.wsArtifact1.isDirty());
+    }
+
+    @Test
+    public void testApplyImpact() throws Exception {
+        File changedFiles = writeChangedFiles("module2/pom.xml");
+
+        this.nonSnapshotMojo.setChangedFiles(changedFiles.getPath());
+        this.nonSnapshotMojo.setApplyImpact(true);
+        this.nonSnapshotMojo.setTimestampQualifierPattern("yyyy");
+
+        this.nonSnapshotMojo.execute();
+
+        assertTrue(this.wsArtifact3.isDirty());
+        assertTrue(this.wsArtifact3.getNewVersion().startsWith("1.0.13-"));
+        assertNull(this.wsArtifact2.getNewVersion());
+
+        verify(this.mockMavenPomHandler).updateArtifact(this.wsArtifact3);
+        verifyZeroInteractions(this.mockScmHandler);
+        assertTrue(new File("target/impact/" + NonSnapshotBaseMojo.DIRTY_MODULES_REGISTRY_FILE).exists());
+    }
+
+    @Test
+    public void testApplyImpactWithoutScmAndRemoteAccess() throws Exception {
+        File changedFiles = writeChangedFiles("module1/pom.xml");
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        this.wsArtifact4.getDependencies().add(new MavenModuleDependency(0, new MavenArtifact("nonblocking.at", "upstream", "1.0.0-1234")));
+
+        VersionGroup versionGroup = new VersionGroup();
+        versionGroup.setName("group1");
+        versionGroup.setArtifacts(Arrays.asList("nonblocking.at:module1", "nonblocking.at:module10"));
+
+        this.nonSnapshotMojo.setChangedFiles(changedFiles.getPath());
+        this.nonSnapshotMojo.setApplyImpact(true);
+        this.nonSnapshotMojo.setTimestampQualifierPattern("yyyy");
+        this.nonSnapshotMojo.setVersionGroups(Collections.singletonList(versionGroup));
+        this.nonSnapshotMojo.setUpstreamDependencies(Collections.singletonList("nonblocking.at:upstream:LATEST"));
+        this.nonSnapshotMojo.setRepositorySystem(mockRepositorySystem);
+
+        this.nonSnapshotMojo.execute();
+
+        assertTrue(this.wsArtifact2.isDirty());
+        assertTrue(this.wsArtifact4.isDirty());
+        assertNotNull(this.wsArtifact4.getNewVersion());
+
+        verifyZeroInteractions(this.mockScmHandler, mockRepositorySystem);
+    }
+
+    private File writeChangedFiles(String... paths) throws Exception {
+        new File("target/impact").mkdirs();
+        File changedFiles = new File("target/impact/changedFiles.txt");
+        try (PrintWriter writer = new PrintWriter(changedFiles)) {
+            for (String path : paths) {
+                writer.println(path);
+            }
+        }
+        return changedFiles;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockFindAllModules(final Model... models) {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Consumer<Model> modelConsumer = (Consumer<Model>) invocation.getArguments()[3];
+                for (Model model : models) {
+                    modelConsumer.accept(model);
+                }
+                return null;
+            }
+        }).when(this.mockModuleTraverser).findAllModules(any(MavenProject.class), anyListOf(Profile.class), anyListOf(MavenProject.class), any(Consumer.class));
+    }
+}
@@ -8,15 +8,25 @@ import java.io.File;
 import java.io.FileReader;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Consumer;
 
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotDependencyResolverException;
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotPluginException;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
 import at.nonblocking.maven.nonsnapshot.model.MavenModuleDependency;
+import at.nonblocking.maven.nonsnapshot.model.MavenModuleProperty;
+import at.nonblocking.maven.nonsnapshot.model.UpdatedUpstreamMavenArtifact;
+import at.nonblocking.maven.nonsnapshot.model.VersionGroup;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Profile;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.AdditionalAnswers;
 import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -47,6 +57,8 @@ public class NonSnapshotUpdateVersionsMojoTest {
         this.nonSnapshotMojo.setMavenPomHandler(this.mockMavenPomHandler);
         this.nonSnapshotMojo.setScmHandler(this.mockScmHandler);
         this.nonSnapshotMojo.setUpstreamDependencyHandler(this.mockUpstreamDependencyHandler);
+
+        when(this.mockDependencyTreeProcessor.sortInDependencyOrder(anyListOf(MavenModule.class))).then(AdditionalAnswers.returnsFirstArg());
     }
 
     @Test
@@ -76,10 +88,7 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact4);
         artifactList.add(wsArtifact5);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2, model3, model4, model5));
+        mockFindAllModules(model1, model2, model3, model4, model5);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
         when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
@@ -155,10 +164,7 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact4);
         artifactList.add(wsArtifact5);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2, model3, model4, model5));
+        mockFindAllModules(model1, model2, model3, model4, model5);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
         when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
@@ -208,6 +214,218 @@ public class NonSnapshotUpdateVersionsMojoTest {
         inOrder.verify(this.mockScmHandler).commitFiles(Arrays.asList(pom1, pom3, pom4, pom5), ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of 4 artifacts updated");
     }
 
+    @Test
+    public void testVersionGroupSvnRevisionQualifiers() throws Exception {
+        Model model1 = new Model();
+        Model model2 = new Model();
+        Model model3 = new Model();
+
+        File pom1 = new File("target/group1/test1/pom.xml");
+        File pom2 = new File("target/group1/test2/pom.xml");
+        File pom3 = new File("target/test3/pom.xml");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "nonblocking.at", "test1", "1.0.0-1200");
+        MavenModule wsArtifact2 = new MavenModule(pom2, "nonblocking.at", "test2", "1.0.0-1210");
+        MavenModule wsArtifact3 = new MavenModule(pom3, "nonblocking.at", "test3", "1.0.0-1234");
+
+        mockFindAllModules(model1, model2, model3);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
+        when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
+
+        List<File> groupDirectories = Arrays.asList(pom1.getParentFile(), pom2.getParentFile());
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+        when(this.mockScmHandler.getCurrentRevisionId(groupDirectories)).thenReturn(1310L);
+        when(this.mockScmHandler.getCurrentRevisionId(pom3.getParentFile())).thenReturn(1234L);
+        when(this.mockScmHandler.checkChangesSinceRevision(groupDirectories, 1200, 1310)).thenReturn(true);
+
+        VersionGroup versionGroup = new VersionGroup();
+        versionGroup.setName("group1");
+        versionGroup.setDirectories(Collections.singletonList("group1"));
+
+        this.nonSnapshotMojo.setVersionGroups(Collections.singletonList(versionGroup));
+        this.nonSnapshotMojo.setScmType(SCM_TYPE.SVN);
+        this.nonSnapshotMojo.setUseSvnRevisionQualifier(true);
+
+        this.nonSnapshotMojo.execute();
+
+        assertEquals("1.0.13-1310", wsArtifact1.getNewVersion());
+        assertEquals("1.0.13-1310", wsArtifact2.getNewVersion());
+        assertNull(wsArtifact3.getNewVersion());
+
+        verify(this.mockScmHandler, times(1)).checkChangesSinceRevision(groupDirectories, 1200, 1310);
+        verify(this.mockScmHandler, times(1)).getCurrentRevisionId(groupDirectories);
+        verify(this.mockScmHandler, never()).getCurrentRevisionId(pom1.getParentFile());
+        verify(this.mockScmHandler, never()).getCurrentRevisionId(pom2.getParentFile());
+        verify(this.mockScmHandler, never()).checkChangesSinceRevision(eq(pom1.getParentFile()), anyLong(), anyLong());
+        verify(this.mockScmHandler, never()).checkChangesSinceRevision(eq(pom2.getParentFile()), anyLong(), anyLong());
+
+        verify(this.mockScmHandler).commitFiles(Arrays.asList(pom1, pom2), ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of 2 artifacts updated");
+    }
+
+    @Test
+    public void testVersionPropertiesFile() throws Exception {
+        Model model1 = new Model();
+        Model model2 = new Model();
+        Model model3 = new Model();
+
+        File pom1 = new File("target/ci/test1/pom.xml");
+        File pom2 = new File("target/ci/test2/pom.xml");
+        File pom3 = new File("target/ci/test3/pom.xml");
+
+        File mavenConfig = new File("target/ci/.mvn/maven.config");
+        FileUtils.forceMkdir(mavenConfig.getParentFile());
+        FileUtils.fileWrite(mavenConfig, "-T 4 -Drevision=1.0.0-1200 -Dcore.version=2.0.0-1234\n");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "nonblocking.at", "test1", "${revision}");
+        MavenModule wsArtifact2 = new MavenModule(pom2, "nonblocking.at", "test2", "${revision}");
+        MavenModule wsArtifact3 = new MavenModule(pom3, "nonblocking.at", "test3", "${core.version}");
+
+        mockFindAllModules(model1, model2, model3);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
+        when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
+
+        List<File> revisionDirectories = Arrays.asList(pom1.getParentFile(), pom2.getParentFile());
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+        when(this.mockScmHandler.getCurrentRevisionId(revisionDirectories)).thenReturn(1300L);
+        when(this.mockScmHandler.getCurrentRevisionId(pom3.getParentFile())).thenReturn(1234L);
+        when(this.mockScmHandler.checkChangesSinceRevision(revisionDirectories, 1200, 1300)).thenReturn(true);
+
+        this.nonSnapshotMojo.setVersionPropertiesFile(mavenConfig);
+        this.nonSnapshotMojo.setScmType(SCM_TYPE.SVN);
+        this.nonSnapshotMojo.setUseSvnRevisionQualifier(true);
+
+        this.nonSnapshotMojo.execute();
+
+        assertEquals("revision", wsArtifact1.getVersionProperty());
+        assertEquals("1.0.13-1300", wsArtifact1.getNewVersion());
+        assertEquals("1.0.13-1300", wsArtifact2.getNewVersion());
+        assertNull(wsArtifact3.getNewVersion());
+
+        assertEquals("-T 4 -Drevision=1.0.13-1300 -Dcore.version=2.0.0-1234\n", FileUtils.fileRead(mavenConfig));
+
+        verify(this.mockScmHandler).commitFiles(Arrays.asList(pom1, pom2, mavenConfig), ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of 2 artifacts updated");
+    }
+
+    @Test
+    public void testVersionPropertiesFileCompositeVersion() throws Exception {
+        Model model1 = new Model();
+
+        File pom1 = new File("target/ci-composite/test1/pom.xml");
+
+        File mavenConfig = new File("target/ci-composite/.mvn/maven.config");
+        FileUtils.forceMkdir(mavenConfig.getParentFile());
+        FileUtils.fileWrite(mavenConfig, "-Drevision=1.0.0 -Dsha1= -Dchangelist=\n");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "nonblocking.at", "test1", "${revision}${sha1}${changelist}");
+
+        mockFindAllModules(model1);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+
+        this.nonSnapshotMojo.setVersionPropertiesFile(mavenConfig);
+        this.nonSnapshotMojo.setTimestampQualifierPattern("yyyy");
+
+        this.nonSnapshotMojo.execute();
+
+        // Only the versioning property is updated, the expression in the POM stays
+        assertEquals("revision", wsArtifact1.getVersionProperty());
+        assertEquals("1.0.0", wsArtifact1.getVersion());
+        assertTrue(wsArtifact1.getNewVersion().startsWith("1.0.13-"));
+
+        assertEquals("-Drevision=" + wsArtifact1.getNewVersion() + " -Dsha1= -Dchangelist=\n", FileUtils.fileRead(mavenConfig));
+    }
+
+    @Test
+    public void testVersionPropertiesFileCompositeVersionWithSuffix() throws Exception {
+        Model model1 = new Model();
+
+        File pom1 = new File("target/ci-composite-suffix/test1/pom.xml");
+
+        File mavenConfig = new File("target/ci-composite-suffix/.mvn/maven.config");
+        FileUtils.forceMkdir(mavenConfig.getParentFile());
+        FileUtils.fileWrite(mavenConfig, "-Drevision=1.0.0 -Dchangelist=-SNAPSHOT\n");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "nonblocking.at", "test1", "${revision}${changelist}");
+
+        mockFindAllModules(model1);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+
+        this.nonSnapshotMojo.setVersionPropertiesFile(mavenConfig);
+
+        try {
+            this.nonSnapshotMojo.execute();
+            fail("Exception expected");
+        } catch (NonSnapshotPluginException e) {
+            assertTrue(e.getMessage().contains("changelist"));
+        }
+
+        verify(this.mockMavenPomHandler, never()).updateArtifact(any(MavenModule.class));
+        assertEquals("-Drevision=1.0.0 -Dchangelist=-SNAPSHOT\n", FileUtils.fileRead(mavenConfig));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testVersionGroupTimestampQualifiers() throws Exception {
+        String pattern = "yyyyMMddHHmmss";
+        Date currentTime = new Date();
+        String currentTimestamp = new SimpleDateFormat(pattern).format(currentTime);
+
+        Model model1 = new Model();
+        Model model2 = new Model();
+        Model model3 = new Model();
+        Model model4 = new Model();
+
+        File pom1 = new File("test1/pom.xml");
+        File pom2 = new File("test2/pom.xml");
+        File pom3 = new File("test3/pom.xml");
+        File pom4 = new File("test4/pom.xml");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "at.nonblocking.group", "test1", "1.0.0-SNAPSHOT"); // Invalid version
+        MavenModule wsArtifact2 = new MavenModule(pom2, "at.nonblocking.group", "test2", "1.0.0-" + currentTimestamp);
+        MavenModule wsArtifact3 = new MavenModule(pom3, "at.nonblocking", "test3", "1.0.0-" + currentTimestamp);
+        MavenModule wsArtifact4 = new MavenModule(pom4, "at.nonblocking", "test4", "1.0.0-" + currentTimestamp);
+
+        mockFindAllModules(model1, model2, model3, model4);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
+        when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
+        when(this.mockMavenPomHandler.readArtifact(model4)).thenReturn(wsArtifact4);
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+        when(this.mockScmHandler.getLastCommitDate(pom3.getParentFile())).thenReturn(currentTime);
+        when(this.mockScmHandler.getLastCommitDate(Collections.singletonList(pom4.getParentFile()))).thenReturn(currentTime);
+
+        VersionGroup versionGroup1 = new VersionGroup();
+        versionGroup1.setName("group1");
+        versionGroup1.setArtifacts(Collections.singletonList("at.nonblocking.group:*"));
+        VersionGroup versionGroup2 = new VersionGroup();
+        versionGroup2.setName("group2");
+        versionGroup2.setArtifacts(Collections.singletonList("at.nonblocking:test4"));
+
+        this.nonSnapshotMojo.setVersionGroups(Arrays.asList(versionGroup1, versionGroup2));
+        this.nonSnapshotMojo.setUseSvnRevisionQualifier(false);
+        this.nonSnapshotMojo.setTimestampQualifierPattern(pattern);
+
+        this.nonSnapshotMojo.execute();
+
+        assertNotNull(wsArtifact1.getNewVersion());
+        assertEquals(wsArtifact1.getNewVersion(), wsArtifact2.getNewVersion());
+        assertNull(wsArtifact3.getNewVersion());
+        assertNull(wsArtifact4.getNewVersion());
+
+        // The dirty group needs no SCM check at all, the unchanged group one check for all members
+        verify(this.mockScmHandler, never()).getLastCommitDate(pom1.getParentFile());
+        verify(this.mockScmHandler, never()).getLastCommitDate(pom2.getParentFile());
+        verify(this.mockScmHandler, times(1)).getLastCommitDate(Collections.singletonList(pom4.getParentFile()));
+        verify(this.mockScmHandler, times(1)).getLastCommitDate(any(List.class));
+
+        verify(this.mockScmHandler).commitFiles(Arrays.asList(pom1, pom2), ScmHandler.NONSNAPSHOT_COMMIT_MESSAGE_PREFIX + " Version of 2 artifacts updated");
+    }
+
     @Test
     public void testIncrementalBuildScript() throws Exception {
 
@@ -245,10 +463,7 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact4);
         artifactList.add(wsArtifact5);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2, model3, model4, model5));
+        mockFindAllModules(model1, model2, model3, model4, model5);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
         when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
@@ -276,6 +491,48 @@ public class NonSnapshotUpdateVersionsMojoTest {
         assertTrue(FileUtils.fileRead(scriptFile).contains(" --projects ../test1,../test3,../test4,../test5 "));
     }
 
+    @Test
+    public void testIncrementalBuildWaves() throws Exception {
+        File wavesFile = new File("target/nonsnapshotBuildWaves.txt");
+        wavesFile.delete();
+
+        Model model1 = new Model();
+        Model model2 = new Model();
+        Model model3 = new Model();
+
+        File pom1 = new File("test1/pom.xm");
+        File pom2 = new File("test2/pom.xm");
+        File pom3 = new File("test3/pom.xm");
+
+        MavenModule wsArtifact1 = new MavenModule(pom1, "nonblocking.at", "test1", "1.0.0-SNAPSHOT"); // Invalid version
+        MavenModule wsArtifact2 = new MavenModule(pom2, "nonblocking.at", "test2", "1.0.0-SNAPSHOT"); // Invalid version
+        MavenModule wsArtifact3 = new MavenModule(pom3, "nonblocking.at", "test3", "1.0.0-SNAPSHOT"); // Invalid version
+
+        mockFindAllModules(model1, model2, model3);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
+        when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+        when(this.mockScmHandler.getCurrentRevisionId(any(File.class))).thenReturn(1355L);
+
+        when(this.mockDependencyTreeProcessor.calculateBuildWaves(Arrays.asList(wsArtifact1, wsArtifact2, wsArtifact3)))
+                .thenReturn(Arrays.asList(Arrays.asList(wsArtifact2), Arrays.asList(wsArtifact1, wsArtifact3)));
+
+        this.nonSnapshotMojo.setScmType(SCM_TYPE.SVN);
+        this.nonSnapshotMojo.setUseSvnRevisionQualifier(true);
+        this.nonSnapshotMojo.setGenerateIncrementalBuildWaves(true);
+
+        this.nonSnapshotMojo.execute();
+
+        assertTrue(wavesFile.exists());
+
+        List<String> lines = FileUtils.loadFile(wavesFile);
+        assertEquals(2, lines.size());
+        assertEquals("../test2", lines.get(0));
+        assertEquals("../test1,../test3", lines.get(1));
+    }
+
     @Test
     public void testChangedProjectsPropertyFile() throws Exception {
 
@@ -307,10 +564,7 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact4);
         artifactList.add(wsArtifact5);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2, model3, model4, model5));
+        mockFindAllModules(model1, model2, model3, model4, model5);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
         when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact3);
@@ -359,20 +613,17 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact1);
         artifactList.add(wsArtifact2);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
         List<String> upstreamDependencyString = Arrays.asList("at.nonblocking:test1:LATEST");
 
         ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, -1, -1, -1);
         List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
 
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2));
+        mockFindAllModules(model1, model2);
 
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
 
-        when(this.mockDependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifactList)).then(new Answer<Boolean>() {
+        when(this.mockDependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifactList, false)).then(new Answer<Boolean>() {
             @Override
             public Boolean answer(InvocationOnMock invocation) throws Throwable {
                 wsArtifact2.setDirty(true);
@@ -403,6 +654,183 @@ public class NonSnapshotUpdateVersionsMojoTest {
         assertEquals("1.0.13-6677", wsArtifact2.getNewVersion());
     }
 
+    @Test
+    public void testUpdateUpstreamDependencyVersionsConcurrently() throws Exception {
+        Model[] models = new Model[6];
+        MavenModule[] wsArtifacts = new MavenModule[models.length];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = new Model();
+            wsArtifacts[i] = new MavenModule(new File("test" + i + "/pom.xml"), "nonblocking.at", "test" + i, "1.0.0-SNAPSHOT");
+            when(this.mockMavenPomHandler.readArtifact(models[i])).thenReturn(wsArtifacts[i]);
+
+            // Every module has its own instances of the same upstream artifacts
+            wsArtifacts[i].getDependencies().add(new MavenModuleDependency(-1, new MavenArtifact("at.nonblocking.upstream", "shared", "1.0.0")));
+            wsArtifacts[i].getDependencies().add(new MavenModuleDependency(-1, new MavenArtifact("at.nonblocking.upstream", "failing", "1.0.0")));
+            wsArtifacts[i].getDependencies().add(new MavenModuleDependency(-1, new MavenArtifact("at.nonblocking.upstream", "own" + (i % 2), "1.0.0")));
+        }
+
+        List<String> upstreamDependencyString = Arrays.asList("at.nonblocking.upstream:*");
+        ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, null, null, null);
+        List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
+
+        mockFindAllModules(models);
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+
+        when(this.mockUpstreamDependencyHandler.processDependencyList(upstreamDependencyString)).thenReturn(upstreamDependencies);
+        when(this.mockUpstreamDependencyHandler.findMatch(any(MavenArtifact.class), eq(upstreamDependencies))).thenReturn(upstreamDependency);
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(any(MavenArtifact.class), eq(upstreamDependency), isNull(RepositorySystem.class), isNull(RepositorySystemSession.class), anyListOf(RemoteRepository.class)))
+                .then(new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock invocation) throws Throwable {
+                        MavenArtifact upstreamArtifact = (MavenArtifact) invocation.getArguments()[0];
+                        if (upstreamArtifact.getArtifactId().equals("failing")) {
+                            throw new NonSnapshotDependencyResolverException("Resolution failed");
+                        }
+                        Thread.sleep(20);
+                        return "1.1." + upstreamArtifact.getArtifactId().length();
+                    }
+                });
+
+        this.nonSnapshotMojo.setUpstreamDependencies(upstreamDependencyString);
+        this.nonSnapshotMojo.setUpstreamResolutionThreads(2);
+        this.nonSnapshotMojo.setDontFailOnUpstreamVersionResolution(true);
+
+        this.nonSnapshotMojo.execute();
+
+        // One query per distinct upstream artifact: shared, failing, own0, own1
+        verify(this.mockUpstreamDependencyHandler, times(4)).resolveLatestVersion(any(MavenArtifact.class), eq(upstreamDependency), isNull(RepositorySystem.class), isNull(RepositorySystemSession.class), anyListOf(RemoteRepository.class));
+        verify(this.mockUpstreamDependencyHandler, times(1)).storeCache();
+        verify(this.mockUpstreamDependencyHandler, times(1)).shutdown();
+
+        for (MavenModule wsArtifact : wsArtifacts) {
+            List<MavenModuleDependency> dependencies = wsArtifact.getDependencies();
+            assertEquals("1.1.6", ((UpdatedUpstreamMavenArtifact) dependencies.get(0).getArtifact()).getNewVersion());
+            assertFalse(dependencies.get(1).getArtifact() instanceof UpdatedUpstreamMavenArtifact);
+            assertEquals("1.1.4", ((UpdatedUpstreamMavenArtifact) dependencies.get(2).getArtifact()).getNewVersion());
+        }
+    }
+
+    @Test
+    public void testUpdateUpstreamDependencyVersionProperty() throws Exception {
+        Model model1 = new Model();
+        Model model2 = new Model();
+        Model model3 = new Model();
+
+        MavenModule wsParent = new MavenModule(new File("parent/pom.xml"), "nonblocking.at", "parent", "1.0.0-SNAPSHOT");
+        MavenModuleProperty versionProperty = new MavenModuleProperty("lib.version", "1.2.3", 10);
+        wsParent.getProperties().put("lib.version", versionProperty);
+
+        MavenModule wsArtifact1 = new MavenModule(new File("test1/pom.xml"), "nonblocking.at", "test1", "1.0.0-SNAPSHOT");
+        MavenModule wsArtifact2 = new MavenModule(new File("test2/pom.xml"), "nonblocking.at", "test2", "1.0.0-SNAPSHOT");
+        wsArtifact1.setParent(wsParent);
+        wsArtifact2.setParent(wsParent);
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(-1, new MavenArtifact("at.nonblocking.upstream", "lib", "${lib.version}")));
+        wsArtifact2.getDependencies().add(new MavenModuleDependency(-1, new MavenArtifact("at.nonblocking.upstream", "lib", "${lib.version}")));
+
+        List<String> upstreamDependencyString = Arrays.asList("at.nonblocking.upstream:*");
+        ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, null, null, null);
+        List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
+
+        mockFindAllModules(model1, model2, model3);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsParent);
+        when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact1);
+        when(this.mockMavenPomHandler.readArtifact(model3)).thenReturn(wsArtifact2);
+
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+
+        final List<String> queriedVersions = Collections.synchronizedList(new ArrayList<String>());
+        when(this.mockUpstreamDependencyHandler.processDependencyList(upstreamDependencyString)).thenReturn(upstreamDependencies);
+        when(this.mockUpstreamDependencyHandler.findMatch(any(MavenArtifact.class), eq(upstreamDependencies))).thenReturn(upstreamDependency);
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(any(MavenArtifact.class), eq(upstreamDependency), isNull(RepositorySystem.class), isNull(RepositorySystemSession.class), anyListOf(RemoteRepository.class)))
+                .then(new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock invocation) throws Throwable {
+                        queriedVersions.add(((MavenArtifact) invocation.getArguments()[0]).getVersion());
+                        return "1.3.0";
+                    }
+                });
+
+        this.nonSnapshotMojo.setUpstreamDependencies(upstreamDependencyString);
+        this.nonSnapshotMojo.setUpdateUpstreamVersionProperties(true);
+
+        this.nonSnapshotMojo.execute();
+
+        assertEquals(Arrays.asList("1.2.3"), queriedVersions);
+
+        assertEquals("1.3.0", versionProperty.getNewValue());
+        assertTrue(wsParent.isDirty());
+        assertFalse(wsArtifact1.getDependencies().get(0).getArtifact() instanceof UpdatedUpstreamMavenArtifact);
+        assertFalse(wsArtifact2.getDependencies().get(0).getArtifact() instanceof UpdatedUpstreamMavenArtifact);
+
+        verify(this.mockMavenPomHandler).updateArtifact(wsParent);
+    }
+
+    @Test(expected = NonSnapshotDependencyResolverException.class)
+    public void testUpdateUpstreamDependencyVersionsConcurrentlyFailure() throws Exception {
+        Model model1 = new Model();
+        MavenModule wsArtifact1 = new MavenModule(new File("test1/pom.xml"), "nonblocking.at", "test1", "1.0.0-SNAPSHOT");
+        MavenArtifact upstreamDep1 = new MavenArtifact("at.nonblocking.upstream", "test2", "1.0.0");
+        MavenArtifact upstreamDep2 = new MavenArtifact("at.nonblocking.upstream", "test3", "1.0.0");
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(-1, upstreamDep1));
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(-1, upstreamDep2));
+
+        List<String> upstreamDependencyString = Arrays.asList("at.nonblocking.upstream:*");
+        ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, null, null, null);
+        List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
+
+        mockFindAllModules(model1);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+
+        when(this.mockUpstreamDependencyHandler.processDependencyList(upstreamDependencyString)).thenReturn(upstreamDependencies);
+        when(this.mockUpstreamDependencyHandler.findMatch(any(MavenArtifact.class), eq(upstreamDependencies))).thenReturn(upstreamDependency);
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(upstreamDep1, upstreamDependency, null, null, null)).thenReturn("1.1.0");
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(upstreamDep2, upstreamDependency, null, null, null)).thenThrow(new NonSnapshotDependencyResolverException("Resolution failed"));
+
+        this.nonSnapshotMojo.setUpstreamDependencies(upstreamDependencyString);
+        this.nonSnapshotMojo.setUpstreamResolutionThreads(2);
+
+        this.nonSnapshotMojo.execute();
+    }
+
+    @Test(timeout = 5000)
+    public void testUpdateUpstreamDependencyVersionsBudget() throws Exception {
+        Model model1 = new Model();
+        MavenModule wsArtifact1 = new MavenModule(new File("test1/pom.xml"), "nonblocking.at", "test1", "1.0.0-SNAPSHOT");
+        MavenArtifact upstreamDep1 = new MavenArtifact("at.nonblocking.upstream", "fast", "1.0.0");
+        MavenArtifact upstreamDep2 = new MavenArtifact("at.nonblocking.upstream", "slow", "1.0.0");
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(-1, upstreamDep1));
+        wsArtifact1.getDependencies().add(new MavenModuleDependency(-1, upstreamDep2));
+
+        List<String> upstreamDependencyString = Arrays.asList("at.nonblocking.upstream:*");
+        ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, null, null, null);
+        List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
+
+        mockFindAllModules(model1);
+        when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
+        when(this.mockScmHandler.isWorkingCopy(any(File.class))).thenReturn(true);
+
+        when(this.mockUpstreamDependencyHandler.processDependencyList(upstreamDependencyString)).thenReturn(upstreamDependencies);
+        when(this.mockUpstreamDependencyHandler.findMatch(any(MavenArtifact.class), eq(upstreamDependencies))).thenReturn(upstreamDependency);
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(upstreamDep1, upstreamDependency, null, null, null)).thenReturn("1.1.0");
+        when(this.mockUpstreamDependencyHandler.resolveLatestVersion(upstreamDep2, upstreamDependency, null, null, null)).then(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(3000);
+                return "1.2.0";
+            }
+        });
+
+        this.nonSnapshotMojo.setUpstreamDependencies(upstreamDependencyString);
+        this.nonSnapshotMojo.setUpstreamResolutionBudget(200);
+        this.nonSnapshotMojo.setDontFailOnUpstreamVersionResolution(true);
+
+        this.nonSnapshotMojo.execute();
+
+        assertEquals("1.1.0", ((UpdatedUpstreamMavenArtifact) wsArtifact1.getDependencies().get(0).getArtifact()).getNewVersion());
+        assertSame(upstreamDep2, wsArtifact1.getDependencies().get(1).getArtifact());
+    }
+
     @Test
     public void testUpdateUpstreamDependencyVersionsParent() throws Exception {
 
@@ -424,20 +852,17 @@ public class NonSnapshotUpdateVersionsMojoTest {
         artifactList.add(wsArtifact1);
         artifactList.add(wsArtifact2);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
         List<String> upstreamDependencyString = Arrays.asList("at.nonblocking:test1:LATEST");
 
         ProcessedUpstreamDependency upstreamDependency = new ProcessedUpstreamDependency(null, null, -1, -1, -1);
         List<ProcessedUpstreamDependency> upstreamDependencies = Arrays.asList(upstreamDependency);
 
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1, model2));
+        mockFindAllModules(model1, model2);
 
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
         when(this.mockMavenPomHandler.readArtifact(model2)).thenReturn(wsArtifact2);
 
-        when(this.mockDependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifactList)).then(new Answer<Boolean>() {
+        when(this.mockDependencyTreeProcessor.markAllArtifactsDirtyWithDirtyDependencies(artifactList, false)).then(new Answer<Boolean>() {
             @Override
             public Boolean answer(InvocationOnMock invocation) throws Throwable {
                 wsArtifact2.setDirty(true);
@@ -480,10 +905,7 @@ public class NonSnapshotUpdateVersionsMojoTest {
         List<MavenModule> artifactList = new ArrayList<>();
         artifactList.add(wsArtifact1);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1));
+        mockFindAllModules(model1);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
 
         this.nonSnapshotMojo.setScmType(SCM_TYPE.SVN);
@@ -512,11 +934,8 @@ public class NonSnapshotUpdateVersionsMojoTest {
         List<MavenModule> artifactList = new ArrayList<>();
         artifactList.add(wsArtifact1);
 
-        MavenProject mavenProject = new MavenProject();
-        mavenProject.setFile(new File("target"));
-
         this.nonSnapshotMojo.setDeferPomCommit(true);
-        when(this.mockModuleTraverser.findAllModules(mavenProject, Collections.<Profile>emptyList())).thenReturn(Arrays.asList(model1));
+        mockFindAllModules(model1);
         when(this.mockMavenPomHandler.readArtifact(model1)).thenReturn(wsArtifact1);
 
         when(this.mockScmHandler.getLastCommitDate(pom1.getParentFile())).thenReturn(new Date());
@@ -533,4 +952,18 @@ public class NonSnapshotUpdateVersionsMojoTest {
         reader.close();
     }
 
+
+    @SuppressWarnings("unchecked")
+    private void mockFindAllModules(final Model... models) {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Consumer<Model> modelConsumer = (Consumer<Model>) invocation.getArguments()[3];
+                for (Model model : models) {
+                    modelConsumer.accept(model);
+                }
+                return null;
+            }
+        }).when(this.mockModuleTraverser).findAllModules(any(MavenProject.class), anyListOf(Profile.class), anyListOf(MavenProject.class), any(Consumer.class));
+    }
 }
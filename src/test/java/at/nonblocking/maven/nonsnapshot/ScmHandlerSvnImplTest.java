@@ -76,4 +76,16 @@ public class ScmHandlerSvnImplTest {
         assertNotNull(lastCommitDate);
     }
 
+    @Test
+    public void testGetLastCommitDateMultiplePaths() throws Exception {
+        File path = new File(SVN_TEST_FOLDER);
+
+        ScmHandler scmService = new ScmHandlerSvnImpl();
+        scmService.init(null, SVN_USER, SVN_PASSWORD, null);
+
+        Date lastCommitDate = scmService.getLastCommitDate(Arrays.asList(new File(path, "src"), new File(path, "pom.xml")));
+
+        assertEquals(scmService.getLastCommitDate(path), lastCommitDate);
+    }
+
 }
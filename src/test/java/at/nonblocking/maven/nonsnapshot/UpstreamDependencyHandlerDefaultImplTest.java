@@ -1,12 +1,22 @@
 package at.nonblocking.maven.nonsnapshot;
 
+import at.nonblocking.maven.nonsnapshot.exception.NonSnapshotDependencyResolverException;
 import at.nonblocking.maven.nonsnapshot.impl.UpstreamDependencyHandlerDefaultImpl;
 import at.nonblocking.maven.nonsnapshot.model.MavenArtifact;
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
 import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.eclipse.aether.util.version.GenericVersionScheme;
 import org.eclipse.aether.version.Version;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -14,14 +24,25 @@ import org.mockito.ArgumentCaptor;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 public class UpstreamDependencyHandlerDefaultImplTest {
 
+    private static final GenericVersionScheme VERSION_SCHEME = new GenericVersionScheme();
+
     @Test
     public void testProcessDependencyList() {
         List<String> upstreamDependencyStrings = Arrays.asList(
@@ -85,17 +106,77 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         assertNull(handler.findMatch(new MavenArtifact("de.nonblocking", "test1", null), upstreamDependencies));
     }
 
+    @Test
+    public void testMatchesFirstDefinitionWins() {
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+
+        List<ProcessedUpstreamDependency> upstreamDependencies = handler.processDependencyList(Arrays.asList(
+                "at.nonblocking.*:test1:1.0",
+                "at.nonblocking:test2",
+                "at.*:*:2",
+                "at.nonblocking:*:3"
+        ));
+
+        assertSame(upstreamDependencies.get(0), handler.findMatch(new MavenArtifact("at.nonblocking.foo", "test1", null), upstreamDependencies));
+        assertSame(upstreamDependencies.get(2), handler.findMatch(new MavenArtifact("at.nonblocking.foo", "test2", null), upstreamDependencies));
+        assertSame(upstreamDependencies.get(1), handler.findMatch(new MavenArtifact("at.nonblocking", "test2", null), upstreamDependencies));
+        assertSame(upstreamDependencies.get(2), handler.findMatch(new MavenArtifact("at.nonblocking", "test3", null), upstreamDependencies));
+        assertSame(upstreamDependencies.get(2), handler.findMatch(new MavenArtifact("at.", "test3", null), upstreamDependencies));
+        assertNull(handler.findMatch(new MavenArtifact("at", "test3", null), upstreamDependencies));
+        assertNull(handler.findMatch(new MavenArtifact("de.nonblocking", "test1", null), upstreamDependencies));
+    }
+
+    @Test
+    public void testMatchesSameAsRegexScan() {
+        Random random = new Random(4711);
+        String[] groupParts = {"at", "nonblocking", "foo", "bar", "x"};
+        String[] artifactParts = {"test", "core", "api", "impl"};
+
+        List<String> upstreamDependencyStrings = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            String group = groupParts[random.nextInt(groupParts.length)] + "." + groupParts[random.nextInt(groupParts.length)];
+            String artifact = artifactParts[random.nextInt(artifactParts.length)];
+            switch (random.nextInt(5)) {
+                case 0: group = group + "*"; break;
+                case 1: group = group.substring(0, 1) + "*" + group.substring(2); break;
+                case 2: artifact = artifact + "-*"; break;
+                case 3: artifact = "*"; break;
+                default: break;
+            }
+            upstreamDependencyStrings.add(group + ":" + artifact);
+        }
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        List<ProcessedUpstreamDependency> upstreamDependencies = handler.processDependencyList(upstreamDependencyStrings);
+
+        for (int i = 0; i < 5000; i++) {
+            String groupId = groupParts[random.nextInt(groupParts.length)] + "." + groupParts[random.nextInt(groupParts.length)]
+                    + (random.nextBoolean() ? "." + groupParts[random.nextInt(groupParts.length)] : "");
+            String artifactId = artifactParts[random.nextInt(artifactParts.length)] + (random.nextBoolean() ? "-" + artifactParts[random.nextInt(artifactParts.length)] : "");
+
+            ProcessedUpstreamDependency expected = null;
+            for (ProcessedUpstreamDependency upstreamDependency : upstreamDependencies) {
+                if (upstreamDependency.getGroupPattern().matcher(groupId).matches()
+                        && upstreamDependency.getArtifactPattern().matcher(artifactId).matches()) {
+                    expected = upstreamDependency;
+                    break;
+                }
+            }
+
+            assertSame(groupId + ":" + artifactId, expected, handler.findMatch(new MavenArtifact(groupId, artifactId, null), upstreamDependencies));
+        }
+    }
+
     @Test
     public void testResolveLatestVersionNoVersionConstraint() throws Exception {
         RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
         RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
         List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
 
-        Version mockVersion1 = mock(Version.class);
-        when(mockVersion1.toString()).thenReturn("1.1.1-1234");
+        Version version1 = VERSION_SCHEME.parseVersion("1.1.1-1234");
 
         VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
-        result.setVersions(Collections.singletonList(mockVersion1));
+        result.setVersions(Collections.singletonList(version1));
 
         ArgumentCaptor<VersionRangeRequest> captor = ArgumentCaptor.forClass(VersionRangeRequest.class);
         when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), captor.capture())).thenReturn(result);
@@ -120,11 +201,10 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
         List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
 
-        Version mockVersion1 = mock(Version.class);
-        when(mockVersion1.toString()).thenReturn("2.1.1-1234");
+        Version version1 = VERSION_SCHEME.parseVersion("2.1.1-1234");
 
         VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
-        result.setVersions(Collections.singletonList(mockVersion1));
+        result.setVersions(Collections.singletonList(version1));
 
         ArgumentCaptor<VersionRangeRequest> captor = ArgumentCaptor.forClass(VersionRangeRequest.class);
         when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), captor.capture())).thenReturn(result);
@@ -149,11 +229,10 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
         List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
 
-        Version mockVersion1 = mock(Version.class);
-        when(mockVersion1.toString()).thenReturn("1.1.1-1234");
+        Version version1 = VERSION_SCHEME.parseVersion("1.1.1-1234");
 
         VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
-        result.setVersions(Arrays.asList(mockVersion1));
+        result.setVersions(Arrays.asList(version1));
 
         ArgumentCaptor<VersionRangeRequest> captor = ArgumentCaptor.forClass(VersionRangeRequest.class);
         when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), captor.capture())).thenReturn(result);
@@ -177,11 +256,10 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
         List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
 
-        Version mockVersion1 = mock(Version.class);
-        when(mockVersion1.toString()).thenReturn("2.3.9-1234");
+        Version version1 = VERSION_SCHEME.parseVersion("2.3.9-1234");
 
         VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
-        result.setVersions(Collections.singletonList(mockVersion1));
+        result.setVersions(Collections.singletonList(version1));
 
         ArgumentCaptor<VersionRangeRequest> captor = ArgumentCaptor.forClass(VersionRangeRequest.class);
         when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), captor.capture())).thenReturn(result);
@@ -206,11 +284,10 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
         List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
 
-        Version mockVersion1 = mock(Version.class);
-        when(mockVersion1.toString()).thenReturn("2.3.4-1234");
+        Version version1 = VERSION_SCHEME.parseVersion("2.3.4-1234");
 
         VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
-        result.setVersions(Collections.singletonList(mockVersion1));
+        result.setVersions(Collections.singletonList(version1));
 
         ArgumentCaptor<VersionRangeRequest> captor = ArgumentCaptor.forClass(VersionRangeRequest.class);
         when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), captor.capture())).thenReturn(result);
@@ -229,4 +306,464 @@ public class UpstreamDependencyHandlerDefaultImplTest {
         assertEquals("at.nonblocking:test1:jar:(1.0.0,2.3.5) < []", captor.getValue().toString());
     }
 
+
+    @Test
+    public void testResolveLatestVersionCachedPerSession() throws Exception {
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RepositorySystemSession repositorySystemSession = new DefaultRepositorySystemSession();
+        List<RemoteRepository> mockRemoteRepositories = new ArrayList<>();
+
+        Version version1 = VERSION_SCHEME.parseVersion("1.1.1-1234");
+
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+            VersionRangeRequest request = (VersionRangeRequest) invocation.getArguments()[1];
+            if (request.getArtifact().getArtifactId().equals("test1")) {
+                result.setVersions(new ArrayList<>(Collections.singletonList(version1)));
+            } else if (request.getArtifact().getArtifactId().equals("test2")) {
+                result.setVersions(new ArrayList<>());
+            } else {
+                throw new VersionRangeResolutionException(result);
+            }
+            return result;
+        });
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), null, null, null);
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("1.1.1-1234", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, repositorySystemSession, mockRemoteRepositories));
+            assertNull(handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test2", "1.0.0"), dep1, mockRepositorySystem, repositorySystemSession, mockRemoteRepositories));
+            try {
+                handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test3", "1.0.0"), dep1, mockRepositorySystem, repositorySystemSession, mockRemoteRepositories);
+                fail("Exception expected");
+            } catch (NonSnapshotDependencyResolverException e) {
+                // Expected
+            }
+        }
+
+        // Another handler instance within the same session
+        assertEquals("1.1.1-1234", new UpstreamDependencyHandlerDefaultImpl().resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, repositorySystemSession, mockRemoteRepositories));
+
+        verify(mockRepositorySystem, times(3)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // A different range is a different query
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.1"), dep1, mockRepositorySystem, repositorySystemSession, mockRemoteRepositories));
+
+        verify(mockRepositorySystem, times(4)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
+
+    @Test(timeout = 5000)
+    public void testResolveLatestVersionConcurrentQueriesResolvedOnce() throws Exception {
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RepositorySystemSession repositorySystemSession = new DefaultRepositorySystemSession();
+        List<RemoteRepository> remoteRepositories = new ArrayList<>();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await();
+            VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+            result.setVersions(new ArrayList<>(Collections.singletonList(VERSION_SCHEME.parseVersion("1.1.1-1234"))));
+            return result;
+        });
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), null, null, null);
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+
+        // Both property versions result in the same query
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "${version1}"), dep1, mockRepositorySystem, repositorySystemSession, remoteRepositories));
+            queryStarted.await();
+            Future<String> second = executor.submit(() -> handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "${version2}"), dep1, mockRepositorySystem, repositorySystemSession, remoteRepositories));
+            Thread.sleep(100);
+            releaseQuery.countDown();
+
+            assertEquals("1.1.1-1234", first.get());
+            assertEquals("1.1.1-1234", second.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(mockRepositorySystem, times(1)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
+    @Test
+    public void testResolveLatestVersionPersistentCache() throws Exception {
+        File cacheDirectory = new File("target/upstreamCacheTest");
+        FileUtils.deleteDirectory(cacheDirectory);
+
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        List<RemoteRepository> remoteRepositories = Collections.singletonList(new RemoteRepository.Builder("nexus", "default", "http://localhost/nexus").build());
+
+        Version version1 = VERSION_SCHEME.parseVersion("1.1.1-1234");
+
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+            VersionRangeRequest request = (VersionRangeRequest) invocation.getArguments()[1];
+            if (request.getArtifact().getArtifactId().equals("test1")) {
+                result.setVersions(new ArrayList<>(Collections.singletonList(version1)));
+            } else {
+                result.setVersions(new ArrayList<>());
+            }
+            return result;
+        });
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), null, null, null);
+        MavenArtifact mavenArtifact1 = new MavenArtifact("at.nonblocking", "test1", "1.0.0");
+        MavenArtifact mavenArtifact2 = new MavenArtifact("at.nonblocking", "test2", "1.0.0");
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_DIRECTORY, cacheDirectory.getAbsolutePath());
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, "60");
+
+        // First build
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(mavenArtifact1, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+        assertNull(handler.resolveLatestVersion(mavenArtifact2, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+
+        // Written once at the end
+        assertFalse(new File(cacheDirectory, "nexus.properties").exists());
+        handler.storeCache();
+        assertTrue(new File(cacheDirectory, "nexus.properties").exists());
+        verify(mockRepositorySystem, times(2)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // Second build: Everything from the cache, including the negative result
+        handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(mavenArtifact1, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+        assertNull(handler.resolveLatestVersion(mavenArtifact2, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+
+        verify(mockRepositorySystem, times(2)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // Other repositories have their own cache
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(mavenArtifact1, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), new ArrayList<RemoteRepository>()));
+        handler.storeCache();
+        assertTrue(new File(cacheDirectory, "local.properties").exists());
+
+        verify(mockRepositorySystem, times(3)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // Forced refresh
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_REFRESH, "true");
+        handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(mavenArtifact1, dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+
+        verify(mockRepositorySystem, times(4)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
+    @Test
+    public void testResolveLatestVersionPersistentCacheExpired() throws Exception {
+        File cacheDirectory = new File("target/upstreamCacheExpiredTest");
+        FileUtils.deleteDirectory(cacheDirectory);
+        cacheDirectory.mkdirs();
+
+        long twoHoursAgo = System.currentTimeMillis() - 2 * 60 * 60 * 1000L;
+        FileUtils.fileWrite(new File(cacheDirectory, "local.properties"),
+                "at.nonblocking\\:test1\\:(1.0.0,)|=" + twoHoursAgo + "|1.0.1\n");
+
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+
+        Version version1 = VERSION_SCHEME.parseVersion("1.1.1-1234");
+
+        VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+        result.setVersions(new ArrayList<>(Collections.singletonList(version1)));
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).thenReturn(result);
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), null, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_DIRECTORY, cacheDirectory.getAbsolutePath());
+
+        // Still valid with a time to live of 3 hours
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, "180");
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+        assertEquals("1.0.1", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), null));
+        verify(mockRepositorySystem, never()).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // Expired with a time to live of 1 hour
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, "60");
+        handler.init(properties);
+        assertEquals("1.1.1-1234", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), null));
+        verify(mockRepositorySystem, times(1)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
+
+    @Test
+    public void testResolveLatestVersionOffline() throws Exception {
+        File localRepository = new File("target/localRepositoryTest");
+        FileUtils.deleteDirectory(localRepository);
+        File artifactDirectory = new File(localRepository, "at/nonblocking/test1");
+        artifactDirectory.mkdirs();
+
+        String lastUpdated = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date(System.currentTimeMillis() - 2 * 24 * 60 * 60 * 1000L));
+        FileUtils.fileWrite(new File(artifactDirectory, "maven-metadata-central.xml"),
+                "<metadata><groupId>at.nonblocking</groupId><artifactId>test1</artifactId><versioning>"
+                        + "<versions><version>1.0.0</version><version>1.1.0</version><version>1.2.0-SNAPSHOT</version></versions>"
+                        + "<lastUpdated>" + lastUpdated + "</lastUpdated></versioning></metadata>");
+        FileUtils.fileWrite(new File(artifactDirectory, "maven-metadata-nexus.xml"),
+                "<metadata><groupId>at.nonblocking</groupId><artifactId>test1</artifactId><versioning>"
+                        + "<versions><version>1.1.0</version><version>2.0.0</version></versions>"
+                        + "<lastUpdated>" + lastUpdated + "</lastUpdated></versioning></metadata>");
+
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
+        when(mockRepositorySystemSession.getLocalRepository()).thenReturn(new LocalRepository(localRepository));
+
+        VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+        result.setVersions(new ArrayList<Version>());
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).thenReturn(result);
+
+        ProcessedUpstreamDependency depLatest = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), null, null, null);
+        ProcessedUpstreamDependency depMajor1 = new ProcessedUpstreamDependency(Pattern.compile("at\\.nonblocking"), Pattern.compile(".*"), 1, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_OFFLINE_RESOLUTION, "true");
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+
+        assertEquals("2.0.0", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), depLatest, mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("1.1.0", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), depMajor1, mockRepositorySystem, mockRepositorySystemSession, null));
+        assertNull(handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "2.0.0"), depLatest, mockRepositorySystem, mockRepositorySystemSession, null));
+
+        verify(mockRepositorySystem, never()).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // No local metadata: Fall back to the remote repositories
+        assertNull(handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test2", "1.0.0"), depLatest, mockRepositorySystem, mockRepositorySystemSession, null));
+
+        verify(mockRepositorySystem, times(1)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+        // Stale local metadata: Fall back to the remote repositories
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_METADATA_MAX_AGE, "60");
+        handler.init(properties);
+
+        assertNull(handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), depLatest, mockRepositorySystem, mockRepositorySystemSession, null));
+
+        verify(mockRepositorySystem, times(2)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
+
+    @Test
+    public void testResolveLatestVersionPrefixBounds() throws Exception {
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
+
+        List<Version> versions = new ArrayList<>();
+        for (String version : Arrays.asList("1.0.0", "1.1-SNAPSHOT", "1.1.0", "1.1.5-20140101", "1.1.6-SNAPSHOT", "1.10.0", "1.2.0")) {
+            versions.add(VERSION_SCHEME.parseVersion(version));
+        }
+        // Lots of nightly versions
+        for (int i = 0; i < 10000; i++) {
+            versions.add(VERSION_SCHEME.parseVersion("3.0." + i));
+            versions.add(VERSION_SCHEME.parseVersion("3.0." + i + "-SNAPSHOT"));
+        }
+        Collections.sort(versions);
+
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+            result.setVersions(new ArrayList<>(versions));
+            return result;
+        });
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        MavenArtifact mavenArtifact = new MavenArtifact("at.nonblocking", "test1", "1.0.0");
+
+        assertEquals("1.1.5-20140101", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 1, 1, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("1.10.0", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 1, 10, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("1.2.0", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 1, 2, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("1.10.0", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 1, null, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertNull(handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 2, null, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("3.0.9999", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), 3, null, null), mockRepositorySystem, mockRepositorySystemSession, null));
+        assertEquals("3.0.9999", handler.resolveLatestVersion(mavenArtifact,
+                new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), null, null, null), mockRepositorySystem, mockRepositorySystemSession, null));
+    }
+
+
+    @Test(timeout = 5000)
+    public void testResolveLatestVersionTimeoutAndCircuitBreaker() throws Exception {
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RepositorySystemSession mockRepositorySystemSession = mock(RepositorySystemSession.class);
+        List<RemoteRepository> slowRepositories = Collections.singletonList(new RemoteRepository.Builder("slow", "default", "http://localhost/slow").build());
+        List<RemoteRepository> fastRepositories = Collections.singletonList(new RemoteRepository.Builder("fast", "default", "http://localhost/fast").build());
+
+        // Injected latency for the slow repository
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            VersionRangeRequest request = (VersionRangeRequest) invocation.getArguments()[1];
+            if (request.getRepositories().get(0).getId().equals("slow")) {
+                Thread.sleep(2000);
+            }
+            VersionRangeResult result = new VersionRangeResult(request);
+            result.setVersions(new ArrayList<>(Collections.singletonList(VERSION_SCHEME.parseVersion("2.0.0"))));
+            return result;
+        });
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), null, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_QUERY_TIMEOUT, "100");
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "2");
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+
+        try {
+            for (int i = 1; i <= 4; i++) {
+                try {
+                    handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test" + i, "1.0.0"), dep1, mockRepositorySystem, mockRepositorySystemSession, slowRepositories);
+                    fail("Exception expected");
+                } catch (NonSnapshotDependencyResolverException e) {
+                    // Expected
+                }
+            }
+
+            // After two timeouts the slow repository is not queried anymore
+            verify(mockRepositorySystem, times(2)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+
+            // Other repositories are not affected
+            assertEquals("2.0.0", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, mockRepositorySystemSession, fastRepositories));
+
+            // The slow repository is dropped from queries together with other repositories
+            List<RemoteRepository> allRepositories = Arrays.asList(slowRepositories.get(0), fastRepositories.get(0));
+            assertEquals("2.0.0", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test2", "1.0.0"), dep1, mockRepositorySystem, mockRepositorySystemSession, allRepositories));
+
+            ArgumentCaptor<VersionRangeRequest> request = ArgumentCaptor.forClass(VersionRangeRequest.class);
+            verify(mockRepositorySystem, times(4)).resolveVersionRange(any(RepositorySystemSession.class), request.capture());
+            assertEquals(fastRepositories, request.getValue().getRepositories());
+        } finally {
+            handler.shutdown();
+        }
+    }
+
+    @Test
+    public void testResolveLatestVersionCircuitBreakerOnMetadataTransferErrors() throws Exception {
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        RemoteRepository failingRepository = new RemoteRepository.Builder("nexus", "default", "http://localhost/nexus").build();
+        RemoteRepository workingRepository = new RemoteRepository.Builder("central", "default", "http://localhost/central").build();
+        Metadata metadata = new DefaultMetadata("at.nonblocking", "test", "maven-metadata.xml", Metadata.Nature.RELEASE_OR_SNAPSHOT);
+
+        // Transfer errors are not thrown but recorded in the result
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).then(invocation -> {
+            VersionRangeRequest request = (VersionRangeRequest) invocation.getArguments()[1];
+            VersionRangeResult result = new VersionRangeResult(request);
+            result.setVersions(new ArrayList<Version>());
+            for (RemoteRepository repository : request.getRepositories()) {
+                if (repository.getId().equals("nexus")) {
+                    result.addException(new MetadataTransferException(metadata, repository, "Server returned 503"));
+                } else {
+                    result.addException(new MetadataNotFoundException(metadata, repository));
+                }
+            }
+            return result;
+        });
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), null, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "2");
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+
+        List<RemoteRepository> remoteRepositories = Arrays.asList(failingRepository, workingRepository);
+        for (int i = 1; i <= 2; i++) {
+            try {
+                handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test" + i, "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories);
+                fail("Exception expected");
+            } catch (NonSnapshotDependencyResolverException e) {
+                // Expected
+            }
+        }
+        assertNull(handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test3", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), remoteRepositories));
+
+        // After two transfer errors the failing repository is dropped, missing metadata doesn't count
+        ArgumentCaptor<VersionRangeRequest> request = ArgumentCaptor.forClass(VersionRangeRequest.class);
+        verify(mockRepositorySystem, times(3)).resolveVersionRange(any(RepositorySystemSession.class), request.capture());
+        assertEquals(remoteRepositories, request.getAllValues().get(1).getRepositories());
+        assertEquals(Collections.singletonList(workingRepository), request.getAllValues().get(2).getRepositories());
+    }
+
+    @Test
+    public void testResolveLatestVersionMetadataTransferErrorNotCached() throws Exception {
+        File cacheDirectory = new File("target/upstreamCacheTransferErrorTest");
+        FileUtils.deleteDirectory(cacheDirectory);
+        cacheDirectory.mkdirs();
+
+        long twoHoursAgo = System.currentTimeMillis() - 2 * 60 * 60 * 1000L;
+        String cacheContent = "at.nonblocking\\:test1\\:(1.0.0,)|=" + twoHoursAgo + "|1.0.1\n";
+        File cacheFile = new File(cacheDirectory, "nexus.properties");
+        FileUtils.fileWrite(cacheFile, cacheContent);
+
+        RemoteRepository repository = new RemoteRepository.Builder("nexus", "default", "http://localhost/nexus").build();
+        Metadata metadata = new DefaultMetadata("at.nonblocking", "test", "maven-metadata.xml", Metadata.Nature.RELEASE_OR_SNAPSHOT);
+
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+        result.setVersions(new ArrayList<Version>());
+        result.addException(new MetadataTransferException(metadata, repository, "Connection refused"));
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class))).thenReturn(result);
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), null, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_DIRECTORY, cacheDirectory.getAbsolutePath());
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, "60");
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+
+        // The expired entry wins over the empty result of the failed transfer
+        assertEquals("1.0.1", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), Collections.singletonList(repository)));
+
+        // Without a cache entry the query fails, and no negative result is cached
+        try {
+            handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test2", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), Collections.singletonList(repository));
+            fail("Exception expected");
+        } catch (NonSnapshotDependencyResolverException e) {
+            // Expected
+        }
+
+        handler.storeCache();
+        assertEquals(cacheContent, FileUtils.fileRead(cacheFile));
+    }
+
+    @Test
+    public void testResolveLatestVersionFallbackToExpiredCacheEntry() throws Exception {
+        File cacheDirectory = new File("target/upstreamCacheFallbackTest");
+        FileUtils.deleteDirectory(cacheDirectory);
+        cacheDirectory.mkdirs();
+
+        long twoHoursAgo = System.currentTimeMillis() - 2 * 60 * 60 * 1000L;
+        FileUtils.fileWrite(new File(cacheDirectory, "local.properties"),
+                "at.nonblocking\\:test1\\:(1.0.0,)|=" + twoHoursAgo + "|1.0.1\n");
+
+        RepositorySystem mockRepositorySystem = mock(RepositorySystem.class);
+        when(mockRepositorySystem.resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class)))
+                .thenThrow(new VersionRangeResolutionException(new VersionRangeResult(new VersionRangeRequest())));
+
+        ProcessedUpstreamDependency dep1 = new ProcessedUpstreamDependency(Pattern.compile(".*"), Pattern.compile(".*"), null, null, null);
+
+        Properties properties = new Properties();
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_DIRECTORY, cacheDirectory.getAbsolutePath());
+        properties.setProperty(UpstreamDependencyHandler.PROPERTY_CACHE_TIME_TO_LIVE, "60");
+
+        UpstreamDependencyHandler handler = new UpstreamDependencyHandlerDefaultImpl();
+        handler.init(properties);
+
+        assertEquals("1.0.1", handler.resolveLatestVersion(new MavenArtifact("at.nonblocking", "test1", "1.0.0"), dep1, mockRepositorySystem, mock(RepositorySystemSession.class), null));
+        verify(mockRepositorySystem, times(1)).resolveVersionRange(any(RepositorySystemSession.class), any(VersionRangeRequest.class));
+    }
+
 }
@@ -0,0 +1,49 @@
+package at.nonblocking.maven.nonsnapshot;
+
+import static junit.framework.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class VersionPropertiesFileTest {
+
+    @Test
+    public void testStoreKeepsLineSeparators() throws Exception {
+        File dir = new File("target/versionproperties");
+        dir.mkdirs();
+        File propertiesFile = new File(dir, "versions.properties");
+        Files.write(propertiesFile.toPath(), "# versions\r\nrevision=1.0.0\r\nother=x".getBytes(StandardCharsets.ISO_8859_1));
+
+        Map<String, String> versionProperties = new LinkedHashMap<>();
+        versionProperties.put("revision", "1.0.1");
+        versionProperties.put("changelist", "-rc");
+        VersionPropertiesFile.store(propertiesFile, versionProperties);
+
+        String content = new String(Files.readAllBytes(propertiesFile.toPath()), StandardCharsets.ISO_8859_1);
+        assertEquals("# versions\r\nrevision=1.0.1\r\nother=x\r\nchangelist=-rc\r\n", content);
+        assertFalse(new File(dir, ".versions.properties.nonsnapshot").exists());
+    }
+
+    @Test
+    public void testStoreMavenConfigKeepsLineSeparators() throws Exception {
+        File dir = new File("target/versionproperties/.mvn");
+        dir.mkdirs();
+        File mavenConfig = new File(dir, VersionPropertiesFile.MAVEN_CONFIG_FILE_NAME);
+        Files.write(mavenConfig.toPath(), "-B\n-Drevision=1.0.0\n".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> versionProperties = new LinkedHashMap<>();
+        versionProperties.put("revision", "1.0.1");
+        versionProperties.put("changelist", "");
+        VersionPropertiesFile.store(mavenConfig, versionProperties);
+
+        String content = new String(Files.readAllBytes(mavenConfig.toPath()), StandardCharsets.UTF_8);
+        assertEquals("-B\n-Drevision=1.0.1\n-Dchangelist=\n", content);
+        assertEquals("1.0.1", VersionPropertiesFile.load(mavenConfig).get("revision"));
+    }
+
+}